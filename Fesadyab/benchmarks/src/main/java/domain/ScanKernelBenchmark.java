@@ -0,0 +1,76 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Full-history scan kernels, scalar against Vector API, over the same amount and account
+// columns. The columns come from ZipfianAccounts with a fixed seed, so both kernels scan
+// identical data; the threshold keeps about one amount in ten.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class ScanKernelBenchmark {
+    private static final int ACCOUNTS = 100_000;
+    private static final int THRESHOLD = 1000;
+
+    @Param({"100000", "10000000"})
+    int historySize;
+
+    @Param({"scalar", "vector"})
+    String kernel;
+
+    ScanKernel scanKernel;
+    int[] amounts;
+    int[] accountIds;
+    int hotAccount;
+
+    @Setup
+    public void setUp() {
+        scanKernel = kernel.equals("vector") ? new VectorScanKernel() : new ScalarScanKernel();
+
+        var accounts = new ZipfianAccounts(ACCOUNTS, 0.99, 42);
+        var random = new Random(42);
+        amounts = new int[historySize];
+        accountIds = new int[historySize];
+        for (int i = 0; i < historySize; i++) {
+            accountIds[i] = accounts.next();
+            amounts[i] = random.nextInt(10) == 0 ? 1000 + random.nextInt(5000) : random.nextInt(1000);
+        }
+        hotAccount = accountIds[0];
+    }
+
+    @Benchmark
+    public long sumAbove() {
+        return scanKernel.sumAbove(amounts, 0, historySize, THRESHOLD);
+    }
+
+    @Benchmark
+    public int countAbove() {
+        return scanKernel.countAbove(amounts, 0, historySize, THRESHOLD);
+    }
+
+    @Benchmark
+    public long sumForAccount() {
+        return scanKernel.sumForAccount(accountIds, amounts, 0, historySize, hotAccount);
+    }
+
+    @Benchmark
+    public int countForAccount() {
+        return scanKernel.countForAccount(accountIds, 0, historySize, hotAccount);
+    }
+}
@@ -0,0 +1,187 @@
+package domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Per-operation cost of the TransactionEngine hot paths at several history sizes. The history
+// and the operation inputs come from fixed seeds. The read benchmarks share a default engine
+// that is rebuilt before every iteration; insert changes the history, so it has its own state.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class TransactionEngineBenchmark {
+    private static final int ACCOUNTS = 100_000;
+    private static final int INPUTS = 1 << 16;
+    private static final int INSERT_BATCH = 256;
+
+    @State(Scope.Benchmark)
+    public static class Loaded {
+        @Param({"1000", "100000", "1000000", "10000000"})
+        int historySize;
+
+        // 0 is uniform; 0.99 is the usual YCSB-style skew.
+        @Param({"0", "0.99"})
+        double zipfExponent;
+
+        TransactionEngine engine;
+        Transaction[] duplicateTransactions;
+        int[] accountIds;
+        int cursor;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            var accounts = new ZipfianAccounts(ACCOUNTS, zipfExponent, 42);
+            var random = new Random(42);
+
+            engine = new TransactionEngine();
+            for (int i = 0; i < historySize; i++) {
+                engine.addTransactionAndDetectFraud(createTransaction(i, accounts.next(), random));
+            }
+
+            duplicateTransactions = new Transaction[INPUTS];
+            accountIds = new int[INPUTS];
+            for (int i = 0; i < INPUTS; i++) {
+                duplicateTransactions[i] = createTransaction(random.nextInt(historySize), accounts.next(), random);
+                accountIds[i] = accounts.next();
+            }
+            cursor = 0;
+        }
+    }
+
+    // An engine of the given variant holding exactly historySize transactions, rebuilt before
+    // each timed batch of INSERT_BATCH inserts, so the history never grows more than
+    // INSERT_BATCH past historySize. The same history is replayed every time.
+    @State(Scope.Thread)
+    public static class Ingest {
+        @Param({"1000", "100000", "1000000", "10000000"})
+        int historySize;
+
+        @Param({"0", "0.99"})
+        double zipfExponent;
+
+        // windowed keeps the newest historySize transactions, so each insert also evicts one;
+        // tiered keeps a tenth of the accounts on the heap.
+        @Param({"default", "offheap", "ewma", "tiered", "windowed"})
+        String engineVariant;
+
+        Transaction[] history;
+        Transaction[] batch;
+        Path spillDirectory;
+        TransactionEngine engine;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            var accounts = new ZipfianAccounts(ACCOUNTS, zipfExponent, 42);
+            var random = new Random(42);
+
+            history = new Transaction[historySize];
+            for (int i = 0; i < historySize; i++) {
+                history[i] = createTransaction(i, accounts.next(), random);
+            }
+            batch = new Transaction[INSERT_BATCH];
+            for (int i = 0; i < INSERT_BATCH; i++) {
+                batch[i] = createTransaction(historySize + i, accounts.next(), random);
+            }
+            if (engineVariant.equals("tiered")) {
+                spillDirectory = Files.createTempDirectory("fesadyab-benchmark");
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            engine = newEngine();
+            for (Transaction txn : history) {
+                engine.addTransactionAndDetectFraud(txn);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void closeEngine() throws IOException {
+            engine.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void removeSpillDirectory() throws IOException {
+            if (spillDirectory != null) {
+                Files.deleteIfExists(spillDirectory);
+            }
+        }
+
+        private TransactionEngine newEngine() throws IOException {
+            return switch (engineVariant) {
+                case "default" -> new TransactionEngine();
+                case "offheap" -> TransactionEngine.withOffHeapHistory(null);
+                case "ewma" -> TransactionEngine.withEwmaBaselines(0.05);
+                case "tiered" -> TransactionEngine.withTieredAccounts(ACCOUNTS / 10, spillDirectory.resolve("spill"),
+                        null);
+                case "windowed" -> new TransactionEngine(TransactionWindow.ofCount(historySize));
+                default -> throw new IllegalArgumentException("Unknown engine variant: " + engineVariant);
+            };
+        }
+    }
+
+    private static Transaction createTransaction(int transactionId, int accountId, Random random) {
+        var txn = new Transaction();
+        txn.transactionId = transactionId;
+        txn.accountId = accountId;
+        txn.amount = random.nextInt(10) == 0 ? 1000 + random.nextInt(5000) : random.nextInt(1000);
+        txn.isDebit = random.nextBoolean();
+        return txn;
+    }
+
+    // One batch per iteration; the reported time is per insert.
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    @OperationsPerInvocation(INSERT_BATCH)
+    public int insert(Ingest state) {
+        var flagged = 0;
+        for (Transaction txn : state.batch) {
+            if (state.engine.addTransactionAndDetectFraud(txn) != 0) {
+                flagged++;
+            }
+        }
+        return flagged;
+    }
+
+    @Benchmark
+    public int duplicateCheck(Loaded state) {
+        return state.engine.addTransactionAndDetectFraud(state.duplicateTransactions[state.cursor++ & (INPUTS - 1)]);
+    }
+
+    @Benchmark
+    public int averageLookup(Loaded state) {
+        return state.engine.getAverageTransactionAmountByAccount(state.accountIds[state.cursor++ & (INPUTS - 1)]);
+    }
+
+    @Benchmark
+    public int thresholdPatternScan(Loaded state) {
+        return state.engine.getTransactionPatternAboveThreshold(state.engine.THRESHOLD);
+    }
+
+    @Benchmark
+    public int thresholdPatternIncremental(Loaded state) {
+        return state.engine.thresholdPattern.score();
+    }
+}
@@ -0,0 +1,151 @@
+package domain;
+
+import java.util.Arrays;
+
+// Running per-account totals, updated on every accepted transaction so that averages are
+// answered without walking the history. Rows are stored densely in parallel columns and
+// located through an accountId -> row index.
+class AccountAggregates {
+    IntIntHashMap rows = new IntIntHashMap();
+
+    int[] accountIds = new int[16];
+    long[] sums = new long[16];
+    long[] counts = new long[16];
+    long[] debitSums = new long[16];
+    long[] debitCounts = new long[16];
+    int size;
+
+    AccountAggregates copy() {
+        var copy = new AccountAggregates();
+        copy.rows = rows.copy();
+        copy.accountIds = Arrays.copyOf(accountIds, Math.max(size, 1));
+        copy.sums = Arrays.copyOf(sums, Math.max(size, 1));
+        copy.counts = Arrays.copyOf(counts, Math.max(size, 1));
+        copy.debitSums = Arrays.copyOf(debitSums, Math.max(size, 1));
+        copy.debitCounts = Arrays.copyOf(debitCounts, Math.max(size, 1));
+        copy.size = size;
+        return copy;
+    }
+
+    // Restores a whole row, e.g. from a snapshot. The account must not be present yet.
+    void addRow(int accountId, long sum, long count, long debitSum, long debitCount) {
+        var row = newRow(accountId);
+        sums[row] = sum;
+        counts[row] = count;
+        debitSums[row] = debitSum;
+        debitCounts[row] = debitCount;
+    }
+
+    void add(int accountId, int amount, boolean isDebit) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            row = newRow(accountId);
+        }
+
+        sums[row] += amount;
+        counts[row]++;
+        if (isDebit) {
+            debitSums[row] += amount;
+            debitCounts[row]++;
+        }
+    }
+
+    void add(Transaction txn) {
+        add(txn.accountId, txn.amount, txn.isDebit);
+    }
+
+    // Takes back an earlier add. Accounts left without transactions are dropped, so the table
+    // only holds accounts that still have transactions.
+    void remove(int accountId, int amount, boolean isDebit) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            throw new IllegalStateException("Account " + accountId + " has no transactions");
+        }
+
+        if (--counts[row] == 0) {
+            removeRow(row);
+            return;
+        }
+
+        sums[row] -= amount;
+        if (isDebit) {
+            debitSums[row] -= amount;
+            debitCounts[row]--;
+        }
+    }
+
+    int average(int accountId) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            return 0;
+        }
+
+        return (int) (sums[row] / counts[row]);
+    }
+
+    long sum(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? 0 : sums[row];
+    }
+
+    long count(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? 0 : counts[row];
+    }
+
+    long debitSum(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? 0 : debitSums[row];
+    }
+
+    long debitCount(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? 0 : debitCounts[row];
+    }
+
+    long creditSum(int accountId) {
+        return sum(accountId) - debitSum(accountId);
+    }
+
+    long creditCount(int accountId) {
+        return count(accountId) - debitCount(accountId);
+    }
+
+    int accountCount() {
+        return size;
+    }
+
+    void removeRow(int row) {
+        rows.remove(accountIds[row]);
+
+        var last = --size;
+        if (row != last) {
+            accountIds[row] = accountIds[last];
+            sums[row] = sums[last];
+            counts[row] = counts[last];
+            debitSums[row] = debitSums[last];
+            debitCounts[row] = debitCounts[last];
+            rows.put(accountIds[row], row);
+        }
+        sums[last] = 0;
+        counts[last] = 0;
+        debitSums[last] = 0;
+        debitCounts[last] = 0;
+    }
+
+    int newRow(int accountId) {
+        if (size == accountIds.length) {
+            var capacity = size << 1;
+            accountIds = Arrays.copyOf(accountIds, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            debitSums = Arrays.copyOf(debitSums, capacity);
+            debitCounts = Arrays.copyOf(debitCounts, capacity);
+        }
+
+        var row = size++;
+        accountIds[row] = accountId;
+        rows.put(accountId, row);
+        return row;
+    }
+}
@@ -0,0 +1,99 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// One QuantileSketch per account, stored densely behind an accountId -> row index like
+// AccountAggregates.
+class AccountQuantileSketches {
+    final int k;
+    private IntIntHashMap rows = new IntIntHashMap();
+    int[] accountIds = new int[16];
+    QuantileSketch[] sketches = new QuantileSketch[16];
+    int size;
+    // Shared by every account's quantile queries, so queries must come from one thread.
+    private long[] scratch = new long[0];
+
+    AccountQuantileSketches(int k) {
+        this.k = QuantileSketch.checkK(k);
+    }
+
+    AccountQuantileSketches copy() {
+        var copy = new AccountQuantileSketches(k);
+        copy.rows = rows.copy();
+        copy.accountIds = Arrays.copyOf(accountIds, Math.max(size, 1));
+        copy.sketches = new QuantileSketch[Math.max(size, 1)];
+        for (int row = 0; row < size; row++) {
+            copy.sketches[row] = sketches[row].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    void add(int accountId, int amount) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            row = newRow(accountId, new QuantileSketch(k));
+        }
+        sketches[row].add(amount);
+    }
+
+    // 0 for unknown accounts.
+    int quantile(int accountId, double fraction) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            return 0;
+        }
+
+        var sketch = sketches[row];
+        var retained = sketch.retainedItems();
+        if (scratch.length < retained) {
+            scratch = new long[Math.max(retained, scratch.length << 1)];
+        }
+        return sketch.quantile(fraction, scratch);
+    }
+
+    QuantileSketch sketch(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? null : sketches[row];
+    }
+
+    int accountCount() {
+        return size;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(k);
+        out.writeInt(size);
+        for (int row = 0; row < size; row++) {
+            out.writeInt(accountIds[row]);
+            sketches[row].writeTo(out);
+        }
+    }
+
+    static AccountQuantileSketches readFrom(DataInput in) throws IOException {
+        var accountSketches = new AccountQuantileSketches(in.readInt());
+        var accounts = in.readInt();
+        for (int i = 0; i < accounts; i++) {
+            var accountId = in.readInt();
+            accountSketches.newRow(accountId, QuantileSketch.readFrom(in));
+        }
+        return accountSketches;
+    }
+
+    private int newRow(int accountId, QuantileSketch sketch) {
+        if (size == accountIds.length) {
+            var capacity = size << 1;
+            accountIds = Arrays.copyOf(accountIds, capacity);
+            sketches = Arrays.copyOf(sketches, capacity);
+        }
+
+        var row = size++;
+        accountIds[row] = accountId;
+        sketches[row] = sketch;
+        rows.put(accountId, row);
+        return row;
+    }
+}
@@ -0,0 +1,21 @@
+package domain;
+
+// Built-in excessive-debit check against the account's average, see
+// TransactionEngine.detectFraudulentTransaction.
+class AverageAmountDetector implements FraudDetector {
+    private final TransactionEngine engine;
+
+    AverageAmountDetector(TransactionEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public int score(Transaction txn) {
+        return engine.detectFraudulentTransaction(txn);
+    }
+
+    @Override
+    public int relativeCost() {
+        return 1;
+    }
+}
@@ -0,0 +1,216 @@
+package domain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Account aggregate rows kept in a memory-mapped file instead of on the heap: an open-addressing
+// table keyed by accountId with linear probing, in fixed 40-byte slots (accountId, 4 padding
+// bytes, sum, count, debitSum, debitCount). A slot is free when its count is 0, which never
+// holds for a stored account. The table is mapped in segments so it can pass 2 GB.
+//
+// The file is scratch space for one process: it is truncated when opened and removed on close,
+// or at the latest when the JVM exits (on Linux it is unlinked right away and only the mapping
+// keeps it alive). Growing rehashes into a second file next to it, so the old table is never
+// truncated while it is being read. Lookups only read the mapping, so they may run on several
+// threads as long as nothing writes at the same time.
+class ColdAccountStore implements AutoCloseable {
+    static final int SLOT_BYTES = 40;
+    private static final int ACCOUNT_ID_OFFSET = 0;
+    private static final int SUM_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int DEBIT_SUM_OFFSET = 24;
+    private static final int DEBIT_COUNT_OFFSET = 32;
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path[] files;
+    private int generation;
+    private FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private ColdAccountStore(Path file) {
+        files = new Path[] {file, file.resolveSibling(file.getFileName() + ".next")};
+    }
+
+    static ColdAccountStore open(Path file) throws IOException {
+        var store = new ColdAccountStore(file);
+        store.allocate(INITIAL_CAPACITY);
+        return store;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Slot holding the account, or -1.
+    int find(int accountId) {
+        var slot = IntIntHashMap.hash(accountId) & mask;
+        while (count(slot) != 0) {
+            if (accountId(slot) == accountId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    int accountId(int slot) {
+        return segment(slot).getInt(offset(slot) + ACCOUNT_ID_OFFSET);
+    }
+
+    long sum(int slot) {
+        return segment(slot).getLong(offset(slot) + SUM_OFFSET);
+    }
+
+    long count(int slot) {
+        return segment(slot).getLong(offset(slot) + COUNT_OFFSET);
+    }
+
+    long debitSum(int slot) {
+        return segment(slot).getLong(offset(slot) + DEBIT_SUM_OFFSET);
+    }
+
+    long debitCount(int slot) {
+        return segment(slot).getLong(offset(slot) + DEBIT_COUNT_OFFSET);
+    }
+
+    // The account must not be stored yet, and count must be positive.
+    void put(int accountId, long sum, long count, long debitSum, long debitCount) {
+        var slot = IntIntHashMap.hash(accountId) & mask;
+        while (count(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        write(slot, accountId, sum, count, debitSum, debitCount);
+
+        if (++size >= resizeAt) {
+            try {
+                grow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Takes back one transaction of a stored account in place, dropping the account when none
+    // are left. Returns false when the account is not stored.
+    boolean remove(int accountId, int amount, boolean isDebit) {
+        var slot = find(accountId);
+        if (slot < 0) {
+            return false;
+        }
+
+        var count = count(slot) - 1;
+        if (count == 0) {
+            delete(slot);
+            return true;
+        }
+
+        var sum = sum(slot) - amount;
+        var debitSum = debitSum(slot);
+        var debitCount = debitCount(slot);
+        if (isDebit) {
+            debitSum -= amount;
+            debitCount--;
+        }
+        write(slot, accountId, sum, count, debitSum, debitCount);
+        return true;
+    }
+
+    // Backward-shift deletion, as in IntIntHashMap, so probes never need tombstones.
+    void delete(int slot) {
+        var gap = slot;
+        var i = (gap + 1) & mask;
+        while (count(i) != 0) {
+            var ideal = IntIntHashMap.hash(accountId(i)) & mask;
+            if (((i - ideal) & mask) >= ((i - gap) & mask)) {
+                write(gap, accountId(i), sum(i), count(i), debitSum(i), debitCount(i));
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        segment(gap).putLong(offset(gap) + COUNT_OFFSET, 0);
+        size--;
+    }
+
+    void copyInto(AccountAggregates target) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (count(slot) != 0) {
+                target.addRow(accountId(slot), sum(slot), count(slot), debitSum(slot), debitCount(slot));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(int slot, int accountId, long sum, long count, long debitSum, long debitCount) {
+        var segment = segment(slot);
+        var offset = offset(slot);
+        segment.putInt(offset + ACCOUNT_ID_OFFSET, accountId);
+        segment.putLong(offset + SUM_OFFSET, sum);
+        segment.putLong(offset + COUNT_OFFSET, count);
+        segment.putLong(offset + DEBIT_SUM_OFFSET, debitSum);
+        segment.putLong(offset + DEBIT_COUNT_OFFSET, debitCount);
+    }
+
+    private void grow() throws IOException {
+        var oldChannel = channel;
+        var oldSegments = segments;
+        var oldCapacity = mask + 1;
+        generation ^= 1;
+        allocate(oldCapacity << 1);
+
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            var segment = oldSegments[slot >>> SEGMENT_SHIFT];
+            var offset = (slot & ((1 << SEGMENT_SHIFT) - 1)) * SLOT_BYTES;
+            var count = segment.getLong(offset + COUNT_OFFSET);
+            if (count != 0) {
+                var accountId = segment.getInt(offset + ACCOUNT_ID_OFFSET);
+                var target = IntIntHashMap.hash(accountId) & mask;
+                while (count(target) != 0) {
+                    target = (target + 1) & mask;
+                }
+                write(target, accountId, segment.getLong(offset + SUM_OFFSET), count,
+                        segment.getLong(offset + DEBIT_SUM_OFFSET), segment.getLong(offset + DEBIT_COUNT_OFFSET));
+                size++;
+            }
+        }
+        // The old mapping stays valid until it is collected; closing only releases its file.
+        oldChannel.close();
+    }
+
+    // Maps a fresh, zeroed table of the given power-of-two capacity in the current generation's file.
+    private void allocate(int capacity) throws IOException {
+        channel = FileChannel.open(files[generation], StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+        var segmentSlots = Math.min(capacity, 1 << SEGMENT_SHIFT);
+        segments = new MappedByteBuffer[capacity / segmentSlots];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSlots * SLOT_BYTES,
+                    (long) segmentSlots * SLOT_BYTES);
+            segments[i].order(ByteOrder.nativeOrder());
+        }
+        mask = capacity - 1;
+        size = 0;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        return segments[slot >>> SEGMENT_SHIFT];
+    }
+
+    private static int offset(int slot) {
+        return (slot & ((1 << SEGMENT_SHIFT) - 1)) * SLOT_BYTES;
+    }
+}
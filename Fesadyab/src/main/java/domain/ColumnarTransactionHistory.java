@@ -0,0 +1,159 @@
+package domain;
+
+// Stores each transaction field in its own primitive column (isDebit as a bitset), so the
+// history costs 12 bytes and a bit per transaction and scans walk plain arrays. The timestamp
+// column is only allocated once a transaction carries a timestamp. Evicted transactions are
+// skipped through head and reclaimed when the columns are next reallocated.
+class ColumnarTransactionHistory implements TransactionHistory {
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 64;
+
+    int[] transactionIds;
+    int[] accountIds;
+    int[] amounts;
+    long[] debitBits;
+    long[] timestamps;
+    int head;
+    int size;
+
+    ColumnarTransactionHistory() {
+        this(16);
+    }
+
+    ColumnarTransactionHistory(int initialCapacity) {
+        transactionIds = new int[initialCapacity];
+        accountIds = new int[initialCapacity];
+        amounts = new int[initialCapacity];
+        debitBits = new long[(initialCapacity + 63) >>> 6];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Transaction txn) {
+        if (head + size == transactionIds.length) {
+            reallocate();
+        }
+
+        var position = head + size;
+        transactionIds[position] = txn.transactionId;
+        accountIds[position] = txn.accountId;
+        amounts[position] = txn.amount;
+        if (txn.isDebit) {
+            debitBits[position >>> 6] |= 1L << position;
+        }
+        if (txn.timestamp != 0) {
+            if (timestamps == null) {
+                timestamps = new long[transactionIds.length];
+            }
+            timestamps[position] = txn.timestamp;
+        }
+        size++;
+    }
+
+    @Override
+    public void removeFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("Transaction history is empty");
+        }
+
+        head++;
+        size--;
+    }
+
+    @Override
+    public int transactionId(int index) {
+        return transactionIds[head + index];
+    }
+
+    @Override
+    public int accountId(int index) {
+        return accountIds[head + index];
+    }
+
+    @Override
+    public int amount(int index) {
+        return amounts[head + index];
+    }
+
+    @Override
+    public boolean isDebit(int index) {
+        var position = head + index;
+        return (debitBits[position >>> 6] & (1L << position)) != 0;
+    }
+
+    @Override
+    public long timestamp(int index) {
+        return timestamps == null ? 0 : timestamps[head + index];
+    }
+
+    @Override
+    public long sumAbove(int threshold) {
+        return ScanKernels.BEST.sumAbove(amounts, head, head + size, threshold);
+    }
+
+    @Override
+    public int countAbove(int threshold) {
+        return ScanKernels.BEST.countAbove(amounts, head, head + size, threshold);
+    }
+
+    @Override
+    public long sumForAccount(int accountId) {
+        return ScanKernels.BEST.sumForAccount(accountIds, amounts, head, head + size, accountId);
+    }
+
+    @Override
+    public int countForAccount(int accountId) {
+        return ScanKernels.BEST.countForAccount(accountIds, head, head + size, accountId);
+    }
+
+    // Moves the retained transactions to the start of fresh columns. The columns grow by half
+    // unless eviction has freed more than a quarter of the current capacity.
+    private void reallocate() {
+        var capacity = transactionIds.length;
+        if (head <= capacity >> 2) {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("Transaction history is full");
+            }
+            capacity = (int) Math.min(MAX_CAPACITY, Math.max(16, capacity + ((long) capacity >> 1)));
+        }
+
+        transactionIds = copyRetained(transactionIds, capacity);
+        accountIds = copyRetained(accountIds, capacity);
+        amounts = copyRetained(amounts, capacity);
+        debitBits = shiftBits(debitBits, head, capacity);
+        if (timestamps != null) {
+            timestamps = copyRetained(timestamps, capacity);
+        }
+        head = 0;
+    }
+
+    private int[] copyRetained(int[] column, int capacity) {
+        var copy = new int[capacity];
+        System.arraycopy(column, head, copy, 0, size);
+        return copy;
+    }
+
+    private long[] copyRetained(long[] column, int capacity) {
+        var copy = new long[capacity];
+        System.arraycopy(column, head, copy, 0, size);
+        return copy;
+    }
+
+    private static long[] shiftBits(long[] bits, int offset, int capacity) {
+        var shifted = new long[(capacity + 63) >>> 6];
+        var wordOffset = offset >>> 6;
+        var bitOffset = offset & 63;
+
+        for (int i = 0; i < shifted.length && i + wordOffset < bits.length; i++) {
+            var word = bits[i + wordOffset] >>> bitOffset;
+            if (bitOffset != 0 && i + wordOffset + 1 < bits.length) {
+                word |= bits[i + wordOffset + 1] << (64 - bitOffset);
+            }
+            shifted[i] = word;
+        }
+        return shifted;
+    }
+}
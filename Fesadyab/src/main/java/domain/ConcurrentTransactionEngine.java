@@ -0,0 +1,95 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Thread-safe variant of TransactionEngine for many ingesting threads. Transaction ids and
+// account aggregates are split into independently locked stripes, so different accounts
+// ingest in parallel. The threshold pattern is a shared immutable state advanced by CAS while
+// the account stripe is held; the order of successful CASes is the linearization order, and
+// it agrees with the per-account order seen by the average check.
+//
+// Only the state needed for scoring is kept: there is no positional history.
+public class ConcurrentTransactionEngine {
+    private static final int DEFAULT_STRIPES = 64;
+
+    final int THRESHOLD = 1000;
+
+    private final int stripeShift;
+    private final IntHashSet[] idStripes;
+    private final AccountAggregates[] accountStripes;
+    private final AtomicReference<ThresholdPatternDetector> thresholdPattern;
+
+    public ConcurrentTransactionEngine() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ConcurrentTransactionEngine(int stripes) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two");
+        }
+
+        stripeShift = 32 - Integer.numberOfTrailingZeros(stripes);
+        idStripes = new IntHashSet[stripes];
+        accountStripes = new AccountAggregates[stripes];
+        for (int i = 0; i < stripes; i++) {
+            idStripes[i] = new IntHashSet();
+            accountStripes[i] = new AccountAggregates();
+        }
+        thresholdPattern = new AtomicReference<>(new ThresholdPatternDetector(THRESHOLD));
+    }
+
+    public int addTransactionAndDetectFraud(Transaction txn) {
+        if (!addTransactionId(txn.transactionId)) {
+            return 0;
+        }
+
+        var aggregates = accountStripes[stripeOf(txn.accountId)];
+        synchronized (aggregates) {
+            var fraudScore = TransactionEngine.excessiveDebitScore(txn, aggregates.average(txn.accountId));
+            var patternScore = advanceThresholdPattern(txn.amount);
+            aggregates.add(txn);
+            return fraudScore != 0 ? fraudScore : patternScore;
+        }
+    }
+
+    int getAverageTransactionAmountByAccount(int accountId) {
+        var aggregates = accountStripes[stripeOf(accountId)];
+        synchronized (aggregates) {
+            return aggregates.average(accountId);
+        }
+    }
+
+    long getTransactionCountByAccount(int accountId) {
+        var aggregates = accountStripes[stripeOf(accountId)];
+        synchronized (aggregates) {
+            return aggregates.count(accountId);
+        }
+    }
+
+    int getThresholdPatternScore() {
+        return thresholdPattern.get().score();
+    }
+
+    private boolean addTransactionId(int transactionId) {
+        var ids = idStripes[stripeOf(transactionId)];
+        synchronized (ids) {
+            return ids.add(transactionId);
+        }
+    }
+
+    // Returns the pattern score as it was immediately before this amount was applied.
+    private int advanceThresholdPattern(int amount) {
+        while (true) {
+            var current = thresholdPattern.get();
+            var next = current.after(amount);
+            if (next == current || thresholdPattern.compareAndSet(current, next)) {
+                return current.score();
+            }
+        }
+    }
+
+    // Uses the high hash bits so stripes do not correlate with slots inside each stripe's table.
+    private int stripeOf(int key) {
+        return stripeShift == 32 ? 0 : IntIntHashMap.hash(key) >>> stripeShift;
+    }
+}
@@ -0,0 +1,43 @@
+package domain;
+
+// History for engines that score from running state only: accepted transactions are not kept.
+class DiscardingTransactionHistory implements TransactionHistory {
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public void add(Transaction txn) {
+    }
+
+    @Override
+    public void removeFirst() {
+        throw new IllegalStateException("Transaction history is empty");
+    }
+
+    @Override
+    public int transactionId(int index) {
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public int accountId(int index) {
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public int amount(int index) {
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public boolean isDebit(int index) {
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public long timestamp(int index) {
+        throw new IndexOutOfBoundsException(index);
+    }
+}
@@ -0,0 +1,78 @@
+package domain;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Per-stage latency histograms (in nanoseconds) and outcome counters for a TransactionEngine.
+// The engine only records while metrics are enabled, and recording never allocates. Like the
+// engine itself this is single-writer: take snapshots on the ingesting thread, or accept
+// slightly stale numbers when reading from another one.
+public class EngineMetrics {
+    public enum Stage {
+        DEDUP,
+        AVERAGE,
+        PATTERN,
+        CUSTOM_DETECTOR,
+        APPEND
+    }
+
+    public record Snapshot(long accepted, long duplicates, long flagged, Map<Stage, LatencyHistogram> latencies) {
+    }
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Stage.values().length];
+    private long accepted;
+    private long duplicates;
+    private long flagged;
+
+    EngineMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    // Records the time since start for the stage and returns the current time, so consecutive
+    // stages can be chained off one clock read each.
+    long record(Stage stage, long start) {
+        var now = System.nanoTime();
+        latencies[stage.ordinal()].record(now - start);
+        return now;
+    }
+
+    void recordNanos(Stage stage, long nanos) {
+        latencies[stage.ordinal()].record(nanos);
+    }
+
+    // Merges latencies recorded off the ingesting thread, e.g. by ParallelBatchScorer partitions.
+    void merge(Stage stage, LatencyHistogram histogram) {
+        latencies[stage.ordinal()].add(histogram);
+    }
+
+    void recordDuplicate(long start) {
+        record(Stage.DEDUP, start);
+        duplicates++;
+    }
+
+    void recordAccepted(int fraudScore) {
+        accepted++;
+        if (fraudScore != 0) {
+            flagged++;
+        }
+    }
+
+    public Snapshot snapshot() {
+        var copies = new EnumMap<Stage, LatencyHistogram>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            copies.put(stage, latencies[stage.ordinal()].copy());
+        }
+        return new Snapshot(accepted, duplicates, flagged, copies);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        accepted = 0;
+        duplicates = 0;
+        flagged = 0;
+    }
+}
@@ -0,0 +1,248 @@
+package domain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Point-in-time copy of the state a TransactionEngine derives from its journal: per-account
+// aggregates, the transaction id index and the threshold pattern, tagged with the journal
+// position it covers, plus the per-account sketches of any PercentileAmountDetector in the
+// detector chain. Capturing copies the primitive tables; encoding and writing work on
+// that private copy, so they can run off the ingesting thread.
+class EngineSnapshot {
+    private static final int MAGIC = 0x46534E50;
+    private static final int VERSION = 4;
+
+    final long journalPosition;
+    final int threshold;
+    final AccountAggregates accountAggregates;
+    final IntHashSet transactionIds;
+    final ThresholdPatternDetector thresholdPattern;
+    final List<PercentileAmountDetector> percentileDetectors;
+
+    private EngineSnapshot(long journalPosition, int threshold, AccountAggregates accountAggregates,
+                           IntHashSet transactionIds, ThresholdPatternDetector thresholdPattern,
+                           List<PercentileAmountDetector> percentileDetectors) {
+        this.journalPosition = journalPosition;
+        this.threshold = threshold;
+        this.accountAggregates = accountAggregates;
+        this.transactionIds = transactionIds;
+        this.thresholdPattern = thresholdPattern;
+        this.percentileDetectors = percentileDetectors;
+    }
+
+    static EngineSnapshot capture(TransactionEngine engine) {
+        if (engine.journal == null) {
+            throw new IllegalStateException("Snapshots need an engine with an attached journal");
+        }
+        if (engine.window != null || engine.accountAggregates == null) {
+            throw new IllegalStateException("Only engines with all-time aggregates can be snapshotted");
+        }
+
+        var percentileDetectors = new ArrayList<PercentileAmountDetector>();
+        for (var entry : engine.detectors.entries) {
+            if (entry.detector instanceof PercentileAmountDetector detector) {
+                percentileDetectors.add(new PercentileAmountDetector(detector.percentile, detector.sketches.copy()));
+            }
+        }
+
+        // The position must be durable before a snapshot may claim it.
+        engine.journal.flush();
+        return new EngineSnapshot(engine.journal.recordCount(), engine.THRESHOLD, engine.accountAggregates.copy(),
+                engine.transactionIds.copy(), engine.thresholdPattern.copy(), percentileDetectors);
+    }
+
+    // Whether restoreInto can take the engine: windowed and EWMA engines have state a snapshot
+    // doesn't hold.
+    static boolean canRestoreInto(TransactionEngine engine) {
+        return engine.window == null && engine.accountAggregates != null;
+    }
+
+    // Loads the derived state into an empty engine, which keeps its own mode: an off-heap engine
+    // keeps its off-heap history and a tiered engine takes the rows through its hot tier,
+    // spilling as usual. There is no positional history. Percentile detectors are
+    // re-registered; other custom detectors have to be added again by the caller.
+    void restoreInto(TransactionEngine engine) {
+        if (!canRestoreInto(engine)) {
+            throw new IllegalStateException("Only engines with all-time aggregates can be restored");
+        }
+        if (!engine.transactionHistory.isEmpty() || engine.transactionIds.size() != 0
+                || engine.accountAggregates.accountCount() != 0) {
+            throw new IllegalStateException("Snapshots must be restored into an empty engine");
+        }
+
+        engine.THRESHOLD = threshold;
+        if (engine.accountAggregates instanceof TieredAccountAggregates tiered) {
+            for (int row = 0; row < accountAggregates.size; row++) {
+                tiered.addRow(accountAggregates.accountIds[row], accountAggregates.sums[row],
+                        accountAggregates.counts[row], accountAggregates.debitSums[row],
+                        accountAggregates.debitCounts[row]);
+            }
+        } else {
+            engine.accountAggregates = accountAggregates.copy();
+        }
+        engine.transactionIds = transactionIds.copy();
+        engine.thresholdPattern = thresholdPattern.copy();
+        for (var detector : percentileDetectors) {
+            engine.addFraudDetector(new PercentileAmountDetector(detector.percentile, detector.sketches.copy()));
+        }
+    }
+
+    // Version 4 ends with a CRC32 of everything before it. The file is forced to disk before
+    // this returns.
+    void writeTo(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var checksum = new CRC32();
+            var out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalPosition);
+            out.writeInt(threshold);
+
+            out.writeBoolean(thresholdPattern.started);
+            out.writeInt(thresholdPattern.previousAmount);
+            out.writeInt(thresholdPattern.diff);
+            out.writeBoolean(thresholdPattern.patternBroken);
+
+            out.writeInt(accountAggregates.size);
+            for (int row = 0; row < accountAggregates.size; row++) {
+                out.writeInt(accountAggregates.accountIds[row]);
+                out.writeLong(accountAggregates.sums[row]);
+                out.writeLong(accountAggregates.counts[row]);
+                out.writeLong(accountAggregates.debitSums[row]);
+                out.writeLong(accountAggregates.debitCounts[row]);
+            }
+
+            var packedIds = packIds(transactionIds);
+            out.writeInt(transactionIds.size());
+            out.writeInt(packedIds.remaining());
+            out.write(packedIds.array(), 0, packedIds.remaining());
+
+            out.writeInt(percentileDetectors.size());
+            for (var detector : percentileDetectors) {
+                out.writeDouble(detector.percentile);
+                detector.sketches.writeTo(out);
+            }
+
+            out.flush();
+            new DataOutputStream(Channels.newOutputStream(channel)).writeLong(checksum.getValue());
+            channel.force(true);
+        }
+    }
+
+    static EngineSnapshot readFrom(Path file) throws IOException {
+        try {
+            return read(file);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot: " + file, e);
+        }
+    }
+
+    private static EngineSnapshot read(Path file) throws IOException {
+        // Counts are bounded by the file size, so a damaged count fails instead of allocating.
+        var fileBytes = Files.size(file);
+        var checksum = new CRC32();
+        try (var raw = new BufferedInputStream(Files.newInputStream(file));
+             var in = new DataInputStream(new CheckedInputStream(raw, checksum))) {
+            // Version 1 snapshots have no percentile detectors at the end, versions before 3
+            // store the transaction ids as plain ints, and versions before 4 have no checksum.
+            var magic = in.readInt();
+            var version = in.readInt();
+            if (magic != MAGIC || version < 1 || version > VERSION) {
+                throw new IOException("Not a transaction engine snapshot: " + file);
+            }
+
+            var journalPosition = in.readLong();
+            var threshold = in.readInt();
+
+            var thresholdPattern = new ThresholdPatternDetector(threshold);
+            thresholdPattern.started = in.readBoolean();
+            thresholdPattern.previousAmount = in.readInt();
+            thresholdPattern.diff = in.readInt();
+            thresholdPattern.patternBroken = in.readBoolean();
+
+            var accountAggregates = new AccountAggregates();
+            var accounts = checkCount(in.readInt(), fileBytes, file);
+            for (int row = 0; row < accounts; row++) {
+                accountAggregates.addRow(in.readInt(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            }
+
+            var ids = checkCount(in.readInt(), fileBytes, file);
+            var transactionIds = new IntHashSet(ids);
+            if (version < 3) {
+                for (int i = 0; i < ids; i++) {
+                    transactionIds.add(in.readInt());
+                }
+            } else {
+                var packedIds = new byte[checkCount(in.readInt(), fileBytes, file)];
+                in.readFully(packedIds);
+                unpackIds(ByteBuffer.wrap(packedIds), ids, transactionIds);
+            }
+
+            var percentileDetectors = new ArrayList<PercentileAmountDetector>();
+            var detectors = version < 2 ? 0 : checkCount(in.readInt(), fileBytes, file);
+            for (int i = 0; i < detectors; i++) {
+                var percentile = in.readDouble();
+                percentileDetectors.add(new PercentileAmountDetector(percentile, AccountQuantileSketches.readFrom(in)));
+            }
+
+            if (version >= 4) {
+                var expected = checksum.getValue();
+                if (new DataInputStream(raw).readLong() != expected || raw.read() != -1) {
+                    throw new IOException("Corrupt snapshot: " + file);
+                }
+            }
+
+            return new EngineSnapshot(journalPosition, threshold, accountAggregates, transactionIds,
+                    thresholdPattern, percentileDetectors);
+        }
+    }
+
+    private static int checkCount(int count, long fileBytes, Path file) throws IOException {
+        if (count < 0 || count > fileBytes) {
+            throw new IOException("Corrupt snapshot: " + file);
+        }
+        return count;
+    }
+
+    // Sorted ids as varint deltas from the previous id; with mostly sequential ids this is
+    // about a byte per id instead of four.
+    private static ByteBuffer packIds(IntHashSet transactionIds) {
+        var ids = new int[transactionIds.size()];
+        var count = new int[1];
+        transactionIds.forEach(id -> ids[count[0]++] = id);
+        Arrays.sort(ids);
+
+        var packed = ByteBuffer.allocate(ids.length * TransactionCodec.MAX_VARINT_BYTES);
+        var previousId = 0;
+        for (int id : ids) {
+            TransactionCodec.putVarint(packed, id - previousId);
+            previousId = id;
+        }
+        return packed.flip();
+    }
+
+    private static void unpackIds(ByteBuffer packed, int count, IntHashSet transactionIds) {
+        var id = 0;
+        for (int i = 0; i < count; i++) {
+            id += TransactionCodec.getVarint(packed);
+            transactionIds.add(id);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package domain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Directory of periodic engine snapshots. snapshot() copies the engine state on the calling
+// (ingesting) thread and writes it on a background thread; recover() loads the newest snapshot
+// and replays only the journal records written after it. A snapshot is written to a temporary
+// file, forced, renamed into place and the directory forced, so a crash leaves either the old
+// or the new file. If the newest snapshot is unreadable or ahead of the journal, recover() falls
+// back to the older retained one, and then to replaying the whole journal.
+public class EngineSnapshots implements AutoCloseable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int RETAINED_SNAPSHOTS = 2;
+
+    private final Path directory;
+    private final ExecutorService writer;
+
+    public EngineSnapshots(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "engine-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Must be called from the thread that feeds the engine.
+    public CompletableFuture<Path> snapshot(TransactionEngine engine) {
+        var snapshot = EngineSnapshot.capture(engine);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return write(snapshot);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, writer);
+    }
+
+    public TransactionEngine recover(TransactionJournal journal) throws IOException {
+        return recover(journal, TransactionEngine::new);
+    }
+
+    // Recovers into an engine of the caller's mode: newEngine returns an empty engine, e.g.
+    // () -> TransactionEngine.withOffHeapHistory(null). Windowed and EWMA engines can't take a
+    // snapshot, so they are rebuilt from the whole journal.
+    public TransactionEngine recover(TransactionJournal journal, Supplier<TransactionEngine> newEngine)
+            throws IOException {
+        var engine = newEngine.get();
+        if (EngineSnapshot.canRestoreInto(engine)) {
+            var snapshots = listSnapshots();
+            for (int i = snapshots.size() - 1; i >= 0; i--) {
+                var snapshot = readUsable(snapshots.get(i), journal);
+                if (snapshot != null) {
+                    snapshot.restoreInto(engine);
+                    engine.resumeJournal(journal, snapshot.journalPosition);
+                    return engine;
+                }
+            }
+        }
+
+        engine.attachJournal(journal);
+        return engine;
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    private Path write(EngineSnapshot snapshot) throws IOException {
+        var file = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, snapshot.journalPosition,
+                SNAPSHOT_SUFFIX));
+        var temporary = directory.resolve(file.getFileName() + ".tmp");
+        snapshot.writeTo(temporary);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+
+        var snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - RETAINED_SNAPSHOTS; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return file;
+    }
+
+    // Null when the file is damaged or covers journal records that never reached the disk.
+    private static EngineSnapshot readUsable(Path file, TransactionJournal journal) {
+        try {
+            var snapshot = EngineSnapshot.readFrom(file);
+            return snapshot.journalPosition <= journal.recordCount() ? snapshot : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Makes the rename durable. Some platforms can't open a directory for syncing; there the
+    // rename is as durable as the file system makes it on its own.
+    private void forceDirectory() {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported here.
+        }
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                var name = file.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+}
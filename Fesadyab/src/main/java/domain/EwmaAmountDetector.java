@@ -0,0 +1,27 @@
+package domain;
+
+// Excessive-debit check with the same "more than twice the baseline" rule as
+// TransactionEngine.detectFraudulentTransaction, but against the account's exponentially
+// weighted mean instead of its all-time average.
+class EwmaAmountDetector implements FraudDetector {
+    final EwmaBaselines baselines;
+
+    EwmaAmountDetector(double alpha) {
+        baselines = new EwmaBaselines(alpha);
+    }
+
+    @Override
+    public int score(Transaction txn) {
+        return TransactionEngine.excessiveDebitScore(txn, baselines.baseline(txn.accountId));
+    }
+
+    @Override
+    public void onAccepted(Transaction txn) {
+        baselines.add(txn.accountId, txn.amount);
+    }
+
+    @Override
+    public int relativeCost() {
+        return 1;
+    }
+}
@@ -0,0 +1,70 @@
+package domain;
+
+import java.util.Arrays;
+
+// Exponentially weighted mean and variance of transaction amounts per account, stored in
+// dense primitive columns behind an accountId index. Each account costs a constant 20 bytes
+// plus its index slot, however many transactions it has seen.
+class EwmaBaselines {
+    final double alpha;
+    private final IntIntHashMap rows = new IntIntHashMap();
+    double[] means = new double[16];
+    double[] variances = new double[16];
+    int[] accountIds = new int[16];
+    int size;
+
+    EwmaBaselines(double alpha) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    void add(int accountId, int amount) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            row = newRow(accountId);
+            means[row] = amount;
+            return;
+        }
+
+        var diff = amount - means[row];
+        var increment = alpha * diff;
+        means[row] += increment;
+        variances[row] = (1 - alpha) * (variances[row] + diff * increment);
+    }
+
+    // Truncated like the integer average of TransactionEngine; 0 for unknown accounts.
+    int baseline(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? 0 : (int) means[row];
+    }
+
+    double mean(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? 0 : means[row];
+    }
+
+    double variance(int accountId) {
+        var row = rows.get(accountId);
+        return row == IntIntHashMap.MISSING ? 0 : variances[row];
+    }
+
+    int accountCount() {
+        return size;
+    }
+
+    private int newRow(int accountId) {
+        if (size == accountIds.length) {
+            var capacity = size << 1;
+            accountIds = Arrays.copyOf(accountIds, capacity);
+            means = Arrays.copyOf(means, capacity);
+            variances = Arrays.copyOf(variances, capacity);
+        }
+
+        var row = size++;
+        accountIds[row] = accountId;
+        rows.put(accountId, row);
+        return row;
+    }
+}
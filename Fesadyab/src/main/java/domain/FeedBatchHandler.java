@@ -0,0 +1,8 @@
+package domain;
+
+// Receives each scored batch from TransactionFeedReader. The transactions and the scores are
+// reused for the next batch, so copy anything that must outlive the call.
+@FunctionalInterface
+public interface FeedBatchHandler {
+    void onBatch(Transaction[] transactions, int[] fraudScores, int count);
+}
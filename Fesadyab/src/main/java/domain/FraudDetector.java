@@ -0,0 +1,15 @@
+package domain;
+
+// A check run by TransactionEngine on every accepted transaction. Detectors run in a chain and
+// the first non-zero score is the transaction's fraud score, so later detectors are skipped.
+public interface FraudDetector {
+    // Score of the transaction against the state before it is recorded; 0 means not suspicious.
+    int score(Transaction txn);
+
+    // Called after every accepted transaction, whether or not this detector ran on it.
+    default void onAccepted(Transaction txn) {
+    }
+
+    // Relative cost of score(); the chain runs cheaper detectors first.
+    int relativeCost();
+}
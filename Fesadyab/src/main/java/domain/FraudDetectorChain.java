@@ -0,0 +1,84 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Ordered list of detectors that stops at the first non-zero score. Detectors are kept sorted
+// by declared cost, ties in registration order. In adaptive mode the chain also counts how
+// often each detector fires and periodically moves detectors with the lowest cost per hit to
+// the front; since the first hit wins, this can change which detector's score is reported.
+class FraudDetectorChain {
+    static final int REORDER_INTERVAL = 4096;
+
+    static class Entry {
+        final FraudDetector detector;
+        final EngineMetrics.Stage stage;
+        final int registration;
+        long evaluations;
+        long hits;
+
+        Entry(FraudDetector detector, EngineMetrics.Stage stage, int registration) {
+            this.detector = detector;
+            this.stage = stage;
+            this.registration = registration;
+        }
+
+        // Expected cost spent per detected transaction, with add-one smoothing of the hit rate.
+        double costPerHit() {
+            return detector.relativeCost() * (evaluations + 2.0) / (hits + 1.0);
+        }
+    }
+
+    Entry[] entries = new Entry[0];
+    boolean adaptive;
+    private long untilReorder = REORDER_INTERVAL;
+
+    void add(FraudDetector detector, EngineMetrics.Stage stage) {
+        entries = Arrays.copyOf(entries, entries.length + 1);
+        entries[entries.length - 1] = new Entry(detector, stage, entries.length - 1);
+        Arrays.sort(entries, Comparator.<Entry>comparingInt(entry -> entry.detector.relativeCost())
+                .thenComparingInt(entry -> entry.registration));
+    }
+
+    int score(Transaction txn, EngineMetrics metrics, long start) {
+        var fraudScore = 0;
+        for (Entry entry : entries) {
+            fraudScore = entry.detector.score(txn);
+            if (metrics != null) {
+                start = metrics.record(entry.stage, start);
+            }
+            if (adaptive) {
+                entry.evaluations++;
+                if (fraudScore != 0) {
+                    entry.hits++;
+                }
+            }
+            if (fraudScore != 0) {
+                break;
+            }
+        }
+
+        if (adaptive && --untilReorder == 0) {
+            untilReorder = REORDER_INTERVAL;
+            Arrays.sort(entries, Comparator.comparingDouble(Entry::costPerHit)
+                    .thenComparingInt(entry -> entry.registration));
+        }
+        return fraudScore;
+    }
+
+    void onAccepted(Transaction txn) {
+        for (Entry entry : entries) {
+            entry.detector.onAccepted(txn);
+        }
+    }
+
+    boolean hasOnlyBuiltInDetectors() {
+        for (Entry entry : entries) {
+            if (!(entry.detector instanceof AverageAmountDetector)
+                    && !(entry.detector instanceof PatternAboveThresholdDetector)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,12 @@
+package domain;
+
+@FunctionalInterface
+public interface FraudScoreHandler {
+    void onFraudScore(int transactionId, int fraudScore, boolean duplicate);
+
+    // Called instead of onFraudScore when scoring the transaction threw. The engine may have
+    // registered the id before failing. TransactionPipeline.close() also rethrows the first
+    // failure, so ignoring this does not hide it.
+    default void onScoringFailure(int transactionId, RuntimeException failure) {
+    }
+}
@@ -0,0 +1,233 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Recomputes the score of every transaction in a history with different detection parameters,
+// with the same result as replaying it in order through addTransactionAndDetectFraud of a
+// fresh engine using those parameters, but in parallel phases:
+//
+// 1. Duplicates: the first occurrence of each id wins, found with a parallel sort of
+//    (id, position) pairs.
+// 2. Accepted positions are compacted with a chunked prefix sum of per-chunk counts.
+// 3. The threshold pattern only changes twice along the stream: when the first amount above
+//    the threshold that differs from the first amount fixes diff, and when a later amount
+//    above the threshold breaks it (see ThresholdPatternSweep). Both are first-match
+//    searches, done as parallel min-reductions over chunks.
+// 4. Running per-account averages only depend on earlier transactions of the same account,
+//    so accounts are split into partitions scored in parallel, as in ParallelBatchScorer.
+public class HistoryBackfill {
+    private static final int CHUNK = 1 << 14;
+
+    private final int threshold;
+    private final int debitMultiplier;
+    private final ForkJoinPool pool;
+
+    public HistoryBackfill(int threshold, int debitMultiplier) {
+        this(threshold, debitMultiplier, ForkJoinPool.commonPool());
+    }
+
+    HistoryBackfill(int threshold, int debitMultiplier, ForkJoinPool pool) {
+        this.threshold = threshold;
+        this.debitMultiplier = debitMultiplier;
+        this.pool = pool;
+    }
+
+    public int[] rescore(List<Transaction> transactions) {
+        var history = new ColumnarTransactionHistory(Math.max(1, transactions.size()));
+        for (Transaction txn : transactions) {
+            history.add(txn);
+        }
+        return rescore(history);
+    }
+
+    // The history is only read, so it must not change while this runs.
+    int[] rescore(TransactionHistory history) {
+        var size = history.size();
+        var fraudScores = new int[size];
+        if (size == 0) {
+            return fraudScores;
+        }
+
+        var accepted = firstOccurrences(history);
+        var order = acceptedPositions(accepted);
+        var patternScores = patternScores(history, order);
+
+        var partitions = Math.max(1, Math.min(order.length, pool.getParallelism() * 4));
+        var partitionStarts = new int[partitions + 1];
+        var byPartition = new int[order.length];
+        groupByPartition(history, order, partitions, partitionStarts, byPartition);
+
+        pool.invoke(new ForEachChunk(0, partitions, partition -> {
+            var aggregates = new AccountAggregates();
+            for (int k = partitionStarts[partition]; k < partitionStarts[partition + 1]; k++) {
+                var rank = byPartition[k];
+                var position = order[rank];
+                var accountId = history.accountId(position);
+                var amount = history.amount(position);
+                var count = aggregates.count(accountId);
+                var averageAmount = count == 0 ? 0 : (int) (aggregates.sum(accountId) / count);
+
+                var fraudScore = TransactionEngine.excessiveDebitScore(history.isDebit(position), amount,
+                        averageAmount, debitMultiplier);
+                fraudScores[position] = fraudScore != 0 ? fraudScore : patternScores[rank];
+                aggregates.add(accountId, amount, history.isDebit(position));
+            }
+        }));
+        return fraudScores;
+    }
+
+    private boolean[] firstOccurrences(TransactionHistory history) {
+        var size = history.size();
+        // Id in the high bits and position in the low ones, so equal ids sort by position.
+        var keys = new long[size];
+        pool.invoke(new ForEachChunk(0, chunks(size), chunk -> {
+            var end = Math.min(size, chunk * CHUNK + CHUNK);
+            for (int i = chunk * CHUNK; i < end; i++) {
+                keys[i] = ((long) history.transactionId(i) << 32) | i;
+            }
+        }));
+        Arrays.parallelSort(keys);
+
+        var accepted = new boolean[size];
+        pool.invoke(new ForEachChunk(0, chunks(size), chunk -> {
+            var end = Math.min(size, chunk * CHUNK + CHUNK);
+            for (int k = chunk * CHUNK; k < end; k++) {
+                if (k == 0 || keys[k] >> 32 != keys[k - 1] >> 32) {
+                    accepted[(int) keys[k]] = true;
+                }
+            }
+        }));
+        return accepted;
+    }
+
+    // Positions of accepted transactions in order: per-chunk counts, an exclusive prefix sum
+    // over the chunks, then each chunk writes its positions from its offset.
+    private int[] acceptedPositions(boolean[] accepted) {
+        var size = accepted.length;
+        var chunkOffsets = new int[chunks(size) + 1];
+        pool.invoke(new ForEachChunk(0, chunks(size), chunk -> {
+            var count = 0;
+            var end = Math.min(size, chunk * CHUNK + CHUNK);
+            for (int i = chunk * CHUNK; i < end; i++) {
+                if (accepted[i]) {
+                    count++;
+                }
+            }
+            chunkOffsets[chunk + 1] = count;
+        }));
+        Arrays.parallelPrefix(chunkOffsets, Integer::sum);
+
+        var order = new int[chunkOffsets[chunkOffsets.length - 1]];
+        pool.invoke(new ForEachChunk(0, chunks(size), chunk -> {
+            var next = chunkOffsets[chunk];
+            var end = Math.min(size, chunk * CHUNK + CHUNK);
+            for (int i = chunk * CHUNK; i < end; i++) {
+                if (accepted[i]) {
+                    order[next++] = i;
+                }
+            }
+        }));
+        return order;
+    }
+
+    // Pattern score each accepted transaction sees, by rank among the accepted ones.
+    private int[] patternScores(TransactionHistory history, int[] order) {
+        var patternScores = new int[order.length];
+        var firstAmount = history.amount(order[0]);
+        var fixedAt = firstMatch(history, order, 1, amount -> amount != firstAmount);
+        if (fixedAt == order.length) {
+            return patternScores;
+        }
+
+        var previousAmount = history.amount(order[fixedAt]);
+        var diff = previousAmount - firstAmount;
+        var expected = previousAmount + diff;
+        var brokenAt = firstMatch(history, order, fixedAt + 1, amount -> amount != expected);
+
+        // The score before a transaction reflects everything accepted before it.
+        pool.invoke(new ForEachChunk(0, chunks(order.length), chunk -> {
+            var end = Math.min(order.length, chunk * CHUNK + CHUNK);
+            for (int rank = chunk * CHUNK; rank < end; rank++) {
+                patternScores[rank] = rank > fixedAt && rank <= brokenAt ? diff : 0;
+            }
+        }));
+        return patternScores;
+    }
+
+    // Lowest rank >= from whose amount is above the threshold and passes the filter, or
+    // order.length if there is none.
+    private int firstMatch(TransactionHistory history, int[] order, int from, AmountFilter filter) {
+        var firstInChunk = new int[chunks(order.length)];
+        pool.invoke(new ForEachChunk(0, firstInChunk.length, chunk -> {
+            firstInChunk[chunk] = order.length;
+            var end = Math.min(order.length, chunk * CHUNK + CHUNK);
+            for (int rank = Math.max(from, chunk * CHUNK); rank < end; rank++) {
+                var amount = history.amount(order[rank]);
+                if (amount > threshold && filter.matches(amount)) {
+                    firstInChunk[chunk] = rank;
+                    return;
+                }
+            }
+        }));
+
+        var first = order.length;
+        for (int rank : firstInChunk) {
+            first = Math.min(first, rank);
+        }
+        return first;
+    }
+
+    // Counting sort of accepted ranks by account partition, keeping stream order inside each.
+    private static void groupByPartition(TransactionHistory history, int[] order, int partitions,
+                                         int[] partitionStarts, int[] byPartition) {
+        for (int position : order) {
+            partitionStarts[ParallelBatchScorer.partitionOf(history.accountId(position), partitions) + 1]++;
+        }
+        for (int p = 0; p < partitions; p++) {
+            partitionStarts[p + 1] += partitionStarts[p];
+        }
+
+        var next = partitionStarts.clone();
+        for (int rank = 0; rank < order.length; rank++) {
+            byPartition[next[ParallelBatchScorer.partitionOf(history.accountId(order[rank]), partitions)]++] = rank;
+        }
+    }
+
+    private static int chunks(int size) {
+        return (size + CHUNK - 1) / CHUNK;
+    }
+
+    @FunctionalInterface
+    private interface AmountFilter {
+        boolean matches(int amount);
+    }
+
+    // Runs body for every index in [from, to), splitting the range across the pool.
+    private static class ForEachChunk extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        ForEachChunk(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                var middle = (from + to) >>> 1;
+                invokeAll(new ForEachChunk(from, middle, body), new ForEachChunk(middle, to, body));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                body.accept(i);
+            }
+        }
+    }
+}
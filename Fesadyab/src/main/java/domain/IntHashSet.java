@@ -0,0 +1,142 @@
+package domain;
+
+import java.util.function.IntConsumer;
+
+// Open-addressing set of primitive ints, used to index transaction ids without boxing.
+// Key 0 is tracked by a flag so that 0 can mark free slots.
+class IntHashSet {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasZero;
+
+    IntHashSet() {
+        this(16);
+    }
+
+    IntHashSet(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(Math.max(capacity, 4));
+    }
+
+    IntHashSet copy() {
+        var copy = new IntHashSet(0);
+        copy.keys = keys.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.resizeAt = resizeAt;
+        copy.hasZero = hasZero;
+        return copy;
+    }
+
+    void forEach(IntConsumer action) {
+        if (hasZero) {
+            action.accept(0);
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    boolean contains(int key) {
+        if (key == 0) {
+            return hasZero;
+        }
+
+        var slot = IntIntHashMap.hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    // Returns false when the key was already present.
+    boolean add(int key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            return true;
+        }
+
+        var slot = IntIntHashMap.hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    // Returns false when the key was not present.
+    boolean remove(int key) {
+        if (key == 0) {
+            var removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+
+        var slot = IntIntHashMap.hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Backward-shift deletion: pull later probes into the gap so lookups never need tombstones.
+        var gap = slot;
+        var i = (gap + 1) & mask;
+        while (keys[i] != 0) {
+            var ideal = IntIntHashMap.hash(keys[i]) & mask;
+            if (((i - ideal) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = 0;
+        size--;
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        allocate(capacity);
+
+        for (int key : oldKeys) {
+            if (key != 0) {
+                var slot = IntIntHashMap.hash(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,147 @@
+package domain;
+
+// Open-addressing int -> int map used for per-account indexes. Values are expected to be
+// non-negative; get() returns MISSING for absent keys. Key 0 is kept outside the table so
+// that 0 can mark free slots.
+class IntIntHashMap {
+    static final int MISSING = -1;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    IntIntHashMap() {
+        this(16);
+    }
+
+    IntIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    IntIntHashMap copy() {
+        var copy = new IntIntHashMap(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.resizeAt = resizeAt;
+        copy.hasZeroKey = hasZeroKey;
+        copy.zeroValue = zeroValue;
+        return copy;
+    }
+
+    int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    int get(int key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : MISSING;
+        }
+
+        var slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    void put(int key, int value) {
+        if (key == 0) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+
+        var slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // Returns the removed value, or MISSING when the key was not present.
+    int remove(int key) {
+        if (key == 0) {
+            var removed = hasZeroKey ? zeroValue : MISSING;
+            hasZeroKey = false;
+            return removed;
+        }
+
+        var slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        var removed = values[slot];
+        var gap = slot;
+        var i = (gap + 1) & mask;
+        while (keys[i] != 0) {
+            var ideal = hash(keys[i]) & mask;
+            if (((i - ideal) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = 0;
+        size--;
+        return removed;
+    }
+
+    static int hash(int key) {
+        var h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int capacity) {
+        var oldKeys = keys;
+        var oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                var slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(capacity, 4);
+    }
+}
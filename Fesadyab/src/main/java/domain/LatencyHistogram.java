@@ -0,0 +1,107 @@
+package domain;
+
+import java.util.Arrays;
+
+// Log-bucketed histogram of non-negative long values in the style of HdrHistogram: values
+// below 8 get exact buckets, larger values fall into 8 sub-buckets per power of two, so any
+// recorded value is reported within 12.5% of its true value. Recording is a couple of shifts
+// and an array increment and never allocates. Not thread-safe; one thread records.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100), capped at the maximum.
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        var seen = 0L;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, upperBoundOf(bucket));
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    // Adds everything recorded in other, e.g. to merge histograms filled on separate threads.
+    void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public LatencyHistogram copy() {
+        var copy = new LatencyHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKETS);
+        copy.count = count;
+        copy.sum = sum;
+        copy.max = max;
+        return copy;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        var exponent = 63 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        var exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        var subBucket = bucket % SUB_BUCKETS;
+        var lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,190 @@
+package domain;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous front end for a TransactionEngine. Request threads submit transactions and get
+// a future for the fraud score; one worker thread coalesces queued submissions into
+// micro-batches and scores each batch with addTransactionsAndDetectFraud. A batch is closed
+// when it reaches maxBatchSize or maxDelayMicros after its first transaction was taken, so
+// the two knobs trade a bounded extra latency for fewer, larger batches. maxDelayMicros = 0
+// only batches what is already queued.
+//
+// Futures complete on the worker thread, so dependent actions that do real work should use
+// the async variants. Submitted transactions must not be changed until their future is done,
+// and the engine must not be used directly while the scorer is running.
+//
+// If scoring a batch throws, every future in the batch fails with that exception, but a failed
+// future does not mean the transaction was rejected: the engine may already have accepted and
+// journaled some of the batch, or registered their ids, before the failure. Treat the outcome
+// as unknown. Resubmitting such a transaction may return 0 because its id is now a duplicate.
+public class MicroBatchingScorer implements AutoCloseable {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    public static final long DEFAULT_MAX_DELAY_MICROS = 50;
+    private static final long IDLE_POLL_MILLIS = 10;
+
+    // Batch sizes in transactions; both are 0 before the first batch.
+    public record Stats(long batches, long transactions, int minBatchSize, int maxBatchSize) {
+        public double meanBatchSize() {
+            return batches == 0 ? 0 : transactions / (double) batches;
+        }
+    }
+
+    private record Submission(Transaction transaction, CompletableFuture<Integer> fraudScore) {
+    }
+
+    private final TransactionEngine engine;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Submission> queue;
+    private final Submission[] batch;
+    private final Transaction[] transactions;
+    private final Object statsLock = new Object();
+    private long batchCount;
+    private long transactionCount;
+    private int smallestBatch;
+    private int largestBatch;
+    private final Thread worker;
+    private volatile boolean running;
+
+    public MicroBatchingScorer(TransactionEngine engine) {
+        this(engine, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MICROS);
+    }
+
+    public MicroBatchingScorer(TransactionEngine engine, int maxBatchSize, long maxDelayMicros) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + maxBatchSize);
+        }
+        if (maxDelayMicros < 0) {
+            throw new IllegalArgumentException("Invalid batch delay: " + maxDelayMicros);
+        }
+
+        this.engine = engine;
+        this.maxBatchSize = maxBatchSize;
+        maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        // Submitters block once this many transactions are waiting, which bounds the backlog.
+        queue = new ArrayBlockingQueue<>(Math.max(1024, maxBatchSize * 16));
+        batch = new Submission[maxBatchSize];
+        transactions = new Transaction[maxBatchSize];
+        worker = new Thread(this::run, "micro-batching-scorer");
+        worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    // Safe to call from several threads. Blocks while the queue is full; fails the future if
+    // the scorer is not running.
+    public CompletableFuture<Integer> submit(Transaction txn) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Scorer is not running"));
+        }
+
+        var submission = new Submission(txn, new CompletableFuture<>());
+        try {
+            queue.put(submission);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // Raced with close(): whoever takes the submission out of the queue completes it.
+        if (!running && queue.remove(submission)) {
+            submission.fraudScore.completeExceptionally(new IllegalStateException("Scorer is not running"));
+        }
+        return submission.fraudScore;
+    }
+
+    public Stats stats() {
+        synchronized (statsLock) {
+            return new Stats(batchCount, transactionCount, smallestBatch, largestBatch);
+        }
+    }
+
+    // Scores everything already submitted, then stops the worker.
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.join();
+
+        Submission submission;
+        while ((submission = queue.poll()) != null) {
+            submission.fraudScore.completeExceptionally(new IllegalStateException("Scorer is not running"));
+        }
+    }
+
+    private void run() {
+        try {
+            while (running || !queue.isEmpty()) {
+                var first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch[0] = first;
+                    scoreBatch(fillBatch());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            // An Error ends the worker. Nothing would complete the batch or the queue, so
+            // fail them and stop taking submissions before passing it on.
+            running = false;
+            for (int i = 0; i < maxBatchSize && batch[i] != null; i++) {
+                batch[i].fraudScore.completeExceptionally(t);
+            }
+            Submission submission;
+            while ((submission = queue.poll()) != null) {
+                submission.fraudScore.completeExceptionally(t);
+            }
+            throw t;
+        }
+    }
+
+    // Adds submissions after batch[0] until the batch is full or its deadline has passed.
+    private int fillBatch() throws InterruptedException {
+        var count = 1;
+        var deadline = System.nanoTime() + maxDelayNanos;
+        while (count < maxBatchSize) {
+            var next = queue.poll();
+            if (next == null) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    break;
+                }
+            }
+            batch[count++] = next;
+        }
+        return count;
+    }
+
+    private void scoreBatch(int count) {
+        for (int i = 0; i < count; i++) {
+            transactions[i] = batch[i].transaction;
+        }
+
+        try {
+            var fraudScores = engine.addTransactionsAndDetectFraud(transactions, count);
+            for (int i = 0; i < count; i++) {
+                batch[i].fraudScore.complete(fraudScores[i]);
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < count; i++) {
+                batch[i].fraudScore.completeExceptionally(e);
+            }
+        }
+
+        synchronized (statsLock) {
+            smallestBatch = batchCount == 0 ? count : Math.min(smallestBatch, count);
+            largestBatch = Math.max(largestBatch, count);
+            batchCount++;
+            transactionCount += count;
+        }
+        for (int i = 0; i < count; i++) {
+            batch[i] = null;
+            transactions[i] = null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// History kept outside the Java heap in fixed 24-byte records (transactionId, accountId,
+// amount, flags, timestamp), so the GC only sees a handful of chunk buffers however many
+// transactions are retained. Records live in direct buffer chunks of a fixed record count and
+// are read through VarHandle views. Chunks emptied by eviction are recycled for new records.
+class OffHeapTransactionHistory implements TransactionHistory {
+    static final int RECORD_BYTES = 24;
+    private static final int TRANSACTION_ID_OFFSET = 0;
+    private static final int ACCOUNT_ID_OFFSET = 4;
+    private static final int AMOUNT_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 12;
+    private static final int TIMESTAMP_OFFSET = 16;
+    private static final int DEBIT_FLAG = 1;
+
+    private static final VarHandle INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int chunkShift;
+    private final int chunkMask;
+    ByteBuffer[] chunks = new ByteBuffer[0];
+    private ByteBuffer spare;
+    // Position of the oldest retained record within chunks[0].
+    private int head;
+    private int size;
+
+    OffHeapTransactionHistory() {
+        this(1 << 16);
+    }
+
+    // chunkRecords must be a power of two.
+    OffHeapTransactionHistory(int chunkRecords) {
+        if (chunkRecords <= 0 || Integer.bitCount(chunkRecords) != 1) {
+            throw new IllegalArgumentException("Chunk record count must be a power of two: " + chunkRecords);
+        }
+        chunkShift = Integer.numberOfTrailingZeros(chunkRecords);
+        chunkMask = chunkRecords - 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Transaction txn) {
+        var position = head + size;
+        if (position >>> chunkShift == chunks.length) {
+            addChunk();
+        }
+
+        var chunk = chunks[position >>> chunkShift];
+        var offset = (position & chunkMask) * RECORD_BYTES;
+        INT.set(chunk, offset + TRANSACTION_ID_OFFSET, txn.transactionId);
+        INT.set(chunk, offset + ACCOUNT_ID_OFFSET, txn.accountId);
+        INT.set(chunk, offset + AMOUNT_OFFSET, txn.amount);
+        INT.set(chunk, offset + FLAGS_OFFSET, txn.isDebit ? DEBIT_FLAG : 0);
+        LONG.set(chunk, offset + TIMESTAMP_OFFSET, txn.timestamp);
+        size++;
+    }
+
+    @Override
+    public void removeFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("Transaction history is empty");
+        }
+
+        head++;
+        size--;
+        if (head > chunkMask) {
+            spare = chunks[0];
+            chunks = Arrays.copyOfRange(chunks, 1, chunks.length);
+            head = 0;
+        }
+    }
+
+    @Override
+    public int transactionId(int index) {
+        return readInt(index, TRANSACTION_ID_OFFSET);
+    }
+
+    @Override
+    public int accountId(int index) {
+        return readInt(index, ACCOUNT_ID_OFFSET);
+    }
+
+    @Override
+    public int amount(int index) {
+        return readInt(index, AMOUNT_OFFSET);
+    }
+
+    @Override
+    public boolean isDebit(int index) {
+        return (readInt(index, FLAGS_OFFSET) & DEBIT_FLAG) != 0;
+    }
+
+    @Override
+    public long timestamp(int index) {
+        var position = head + index;
+        var offset = (position & chunkMask) * RECORD_BYTES;
+        return (long) LONG.get(chunks[position >>> chunkShift], offset + TIMESTAMP_OFFSET);
+    }
+
+    private int readInt(int index, int field) {
+        var position = head + index;
+        return (int) INT.get(chunks[position >>> chunkShift], (position & chunkMask) * RECORD_BYTES + field);
+    }
+
+    private void addChunk() {
+        if ((long) (chunks.length + 1) << chunkShift > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Transaction history is full");
+        }
+
+        var chunk = spare != null ? spare : ByteBuffer.allocateDirect((chunkMask + 1) * RECORD_BYTES);
+        spare = null;
+        chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        chunks[chunks.length - 1] = chunk;
+    }
+}
@@ -0,0 +1,181 @@
+package domain;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Scores a batch with the same result as calling addTransactionAndDetectFraud for each
+// transaction in order. Duplicate ids and the threshold pattern depend on global order and
+// are resolved in one sequential O(1)-per-item pass; the average check only depends on
+// earlier transactions of the same account, so accounts are split into partitions that are
+// scored in parallel. Accepted transactions are appended in input order at the end.
+// Windowed engines evict while ingesting and custom or adaptively ordered detectors need the
+// full chain per transaction, so those batches are scored sequentially.
+//
+// With metrics enabled the parallel path records the same outcomes and stages as sequential
+// ingestion: dedup, pattern and append timings per transaction on the calling thread, and
+// average-check timings in one histogram per partition, merged once the partitions are done.
+class ParallelBatchScorer {
+    static final int PARALLEL_CUTOFF = 4096;
+
+    private final TransactionEngine engine;
+    private final ForkJoinPool pool;
+
+    ParallelBatchScorer(TransactionEngine engine) {
+        this(engine, ForkJoinPool.commonPool());
+    }
+
+    ParallelBatchScorer(TransactionEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+    }
+
+    int[] score(Transaction[] transactions, int count) {
+        var fraudScores = new int[count];
+        if (count < PARALLEL_CUTOFF || pool.getParallelism() == 1 || engine.window != null
+                || engine.detectors.adaptive || !engine.detectors.hasOnlyBuiltInDetectors()) {
+            for (int i = 0; i < count; i++) {
+                fraudScores[i] = engine.addTransactionAndDetectFraud(transactions[i]);
+            }
+            return fraudScores;
+        }
+
+        var metrics = engine.metrics;
+        var accepted = new boolean[count];
+        var patternScores = new int[count];
+        var patternNanos = metrics == null ? null : new long[count];
+        var acceptedCount = 0;
+        for (int i = 0; i < count; i++) {
+            var txn = transactions[i];
+            var start = metrics == null ? 0 : System.nanoTime();
+            if (!engine.transactionIds.add(txn.transactionId)) {
+                if (metrics != null) {
+                    metrics.recordDuplicate(start);
+                }
+                continue;
+            }
+
+            if (metrics != null) {
+                start = metrics.record(EngineMetrics.Stage.DEDUP, start);
+            }
+            accepted[i] = true;
+            patternScores[i] = engine.thresholdPattern.score();
+            if (metrics != null) {
+                patternNanos[i] = System.nanoTime() - start;
+            }
+            engine.thresholdPattern.accept(txn.amount);
+            acceptedCount++;
+        }
+
+        var partitions = Math.max(1, Math.min(acceptedCount, pool.getParallelism() * 4));
+        var partitionStarts = new int[partitions + 1];
+        var order = new int[acceptedCount];
+        groupByPartition(transactions, accepted, count, partitions, partitionStarts, order);
+
+        var averageLatencies = metrics == null ? null : new LatencyHistogram[partitions];
+        pool.invoke(new ScorePartitions(transactions, order, partitionStarts, 0, partitions, fraudScores,
+                averageLatencies));
+        if (metrics != null) {
+            for (LatencyHistogram histogram : averageLatencies) {
+                metrics.merge(EngineMetrics.Stage.AVERAGE, histogram);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (accepted[i]) {
+                // As in the chain, the pattern check only runs when the average check passed.
+                if (fraudScores[i] == 0) {
+                    fraudScores[i] = patternScores[i];
+                    if (metrics != null) {
+                        metrics.recordNanos(EngineMetrics.Stage.PATTERN, patternNanos[i]);
+                    }
+                }
+                var start = metrics == null ? 0 : System.nanoTime();
+                engine.appendAccepted(transactions[i]);
+                if (metrics != null) {
+                    metrics.record(EngineMetrics.Stage.APPEND, start);
+                    metrics.recordAccepted(fraudScores[i]);
+                }
+            }
+        }
+        return fraudScores;
+    }
+
+    // Counting sort of accepted indices by partition, keeping input order inside each partition.
+    private static void groupByPartition(Transaction[] transactions, boolean[] accepted, int count, int partitions,
+                                         int[] partitionStarts, int[] order) {
+        for (int i = 0; i < count; i++) {
+            if (accepted[i]) {
+                partitionStarts[partitionOf(transactions[i].accountId, partitions) + 1]++;
+            }
+        }
+        for (int p = 0; p < partitions; p++) {
+            partitionStarts[p + 1] += partitionStarts[p];
+        }
+
+        var next = partitionStarts.clone();
+        for (int i = 0; i < count; i++) {
+            if (accepted[i]) {
+                order[next[partitionOf(transactions[i].accountId, partitions)]++] = i;
+            }
+        }
+    }
+
+    static int partitionOf(int accountId, int partitions) {
+        return (IntIntHashMap.hash(accountId) & Integer.MAX_VALUE) % partitions;
+    }
+
+    private class ScorePartitions extends RecursiveAction {
+        private final Transaction[] transactions;
+        private final int[] order;
+        private final int[] partitionStarts;
+        private final int from;
+        private final int to;
+        private final int[] fraudScores;
+        // One histogram per partition, or null when metrics are off.
+        private final LatencyHistogram[] averageLatencies;
+
+        ScorePartitions(Transaction[] transactions, int[] order, int[] partitionStarts, int from, int to,
+                        int[] fraudScores, LatencyHistogram[] averageLatencies) {
+            this.transactions = transactions;
+            this.order = order;
+            this.partitionStarts = partitionStarts;
+            this.from = from;
+            this.to = to;
+            this.fraudScores = fraudScores;
+            this.averageLatencies = averageLatencies;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                var middle = (from + to) >>> 1;
+                invokeAll(new ScorePartitions(transactions, order, partitionStarts, from, middle, fraudScores,
+                                averageLatencies),
+                        new ScorePartitions(transactions, order, partitionStarts, middle, to, fraudScores,
+                                averageLatencies));
+                return;
+            }
+
+            // The engine aggregates are only read here; in-batch updates go to a local table.
+            var batchAggregates = new AccountAggregates();
+            var latencies = averageLatencies == null ? null : new LatencyHistogram();
+            for (int k = partitionStarts[from]; k < partitionStarts[to]; k++) {
+                var start = latencies == null ? 0 : System.nanoTime();
+                var i = order[k];
+                var txn = transactions[i];
+                var sum = engine.accountAggregates.sum(txn.accountId) + batchAggregates.sum(txn.accountId);
+                var count = engine.accountAggregates.count(txn.accountId) + batchAggregates.count(txn.accountId);
+                var averageAmount = count == 0 ? 0 : (int) (sum / count);
+
+                fraudScores[i] = TransactionEngine.excessiveDebitScore(txn, averageAmount);
+                if (latencies != null) {
+                    latencies.record(System.nanoTime() - start);
+                }
+                batchAggregates.add(txn);
+            }
+            if (latencies != null) {
+                averageLatencies[from] = latencies;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package domain;
+
+// Built-in arithmetic-progression check over amounts above THRESHOLD. The engine keeps its
+// ThresholdPatternDetector up to date itself, so this only reads the current score.
+class PatternAboveThresholdDetector implements FraudDetector {
+    private final TransactionEngine engine;
+
+    PatternAboveThresholdDetector(TransactionEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public int score(Transaction txn) {
+        return engine.thresholdPattern.score();
+    }
+
+    @Override
+    public int relativeCost() {
+        return 1;
+    }
+}
@@ -0,0 +1,48 @@
+package domain;
+
+// Flags debits above a percentile of the account's own amounts, scored by how far above they
+// are. Unlike the "more than twice the average" rule a few huge amounts don't move the
+// threshold much. Accounts without transactions have a threshold of 0, so their first debit
+// is flagged, as with the average rule.
+public class PercentileAmountDetector implements FraudDetector {
+    final double percentile;
+    AccountQuantileSketches sketches;
+
+    public PercentileAmountDetector(double percentile) {
+        this(percentile, QuantileSketch.DEFAULT_K);
+    }
+
+    // Larger k makes thresholds more accurate and each account's sketch bigger, about 12k bytes.
+    public PercentileAmountDetector(double percentile, int k) {
+        this(percentile, new AccountQuantileSketches(k));
+    }
+
+    PercentileAmountDetector(double percentile, AccountQuantileSketches sketches) {
+        if (!(percentile > 0 && percentile <= 1)) {
+            throw new IllegalArgumentException("Percentile must be in (0, 1]: " + percentile);
+        }
+        this.percentile = percentile;
+        this.sketches = sketches;
+    }
+
+    @Override
+    public int score(Transaction txn) {
+        if (!txn.isDebit) {
+            return 0;
+        }
+
+        var threshold = sketches.quantile(txn.accountId, percentile);
+        return txn.amount > threshold ? txn.amount - threshold : 0;
+    }
+
+    @Override
+    public void onAccepted(Transaction txn) {
+        sketches.add(txn.accountId, txn.amount);
+    }
+
+    // A threshold lookup sorts the account's retained sketch items.
+    @Override
+    public int relativeCost() {
+        return 4;
+    }
+}
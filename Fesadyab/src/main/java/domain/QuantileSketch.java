@@ -0,0 +1,288 @@
+package domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// KLL quantile sketch over int amounts. Level h holds items that each stand for 2^h inserted
+// amounts; when the sketch is over its budget the lowest full level is sorted and every other
+// item is promoted to the level above. Level capacities shrink geometrically by 2/3 from the
+// top, so the sketch keeps about 3k items whatever the stream length, and rank error is
+// roughly 1.7/k of the count. Sketches with the same k can be merged.
+//
+// All levels live in one int buffer exactly as long as the level budget: level h is
+// items[levelStarts[h], levelStarts[h + 1]), level 0 comes first and the free space sits in
+// front of it, so an add is one store and a compaction moves items within the buffer. With
+// the default k a sketch takes a few hundred bytes of heap.
+class QuantileSketch {
+    static final int DEFAULT_K = 32;
+    // Retained items stay under the level budget, about 3k, so with this cap every level size
+    // fits the 16-bit field writeTo stores it in.
+    static final int MAX_K = 16384;
+    private static final int MIN_LEVEL_CAPACITY = 2;
+
+    final int k;
+    int[] items;
+    int[] levelStarts;
+    long count;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    // Alternates which half of a sorted level is promoted, so compactions don't drift one way.
+    private boolean promoteOdd;
+
+    QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    QuantileSketch(int k) {
+        this.k = checkK(k);
+        items = new int[k];
+        levelStarts = new int[] {k, k};
+    }
+
+    static int checkK(int k) {
+        if (k < MIN_LEVEL_CAPACITY || k > MAX_K) {
+            throw new IllegalArgumentException("k must be in [" + MIN_LEVEL_CAPACITY + ", " + MAX_K + "]: " + k);
+        }
+        return k;
+    }
+
+    QuantileSketch copy() {
+        var copy = new QuantileSketch(k);
+        copy.items = items.clone();
+        copy.levelStarts = levelStarts.clone();
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.promoteOdd = promoteOdd;
+        return copy;
+    }
+
+    void add(int amount) {
+        items[--levelStarts[0]] = amount;
+        count++;
+        min = Math.min(min, amount);
+        max = Math.max(max, amount);
+        if (levelStarts[0] == 0) {
+            compress();
+        }
+    }
+
+    void merge(QuantileSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches with k " + k + " and " + other.k);
+        }
+
+        // Both sketches' levels side by side, then compressed back under the budget.
+        var levelCount = Math.max(levelCount(), other.levelCount());
+        var merged = new int[retainedItems() + other.retainedItems()];
+        var starts = new int[levelCount + 1];
+        var position = 0;
+        for (int h = 0; h < levelCount; h++) {
+            starts[h] = position;
+            position = copyLevel(h, merged, position);
+            position = other.copyLevel(h, merged, position);
+        }
+        starts[levelCount] = position;
+        items = merged;
+        levelStarts = starts;
+
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress();
+    }
+
+    // Estimated amount at the given rank fraction; 0 for an empty sketch.
+    int quantile(double fraction) {
+        return quantile(fraction, new long[retainedItems()]);
+    }
+
+    // As above, sorting the retained items in scratch, which must hold retainedItems() longs.
+    // Callers with many sketches share one scratch buffer, so no sketch keeps a sorted copy.
+    int quantile(double fraction, long[] scratch) {
+        if (count == 0) {
+            return 0;
+        }
+        if (fraction <= 0) {
+            return min;
+        }
+        if (fraction >= 1) {
+            return max;
+        }
+
+        // Value in the high bits and level in the low byte, so one sort orders by value.
+        var n = 0;
+        for (int h = 0; h < levelCount(); h++) {
+            for (int i = levelStarts[h]; i < levelStarts[h + 1]; i++) {
+                scratch[n++] = ((long) items[i] << 8) | h;
+            }
+        }
+        Arrays.sort(scratch, 0, n);
+
+        var target = fraction * count;
+        var rank = 0L;
+        for (int i = 0; i < n; i++) {
+            rank += 1L << (scratch[i] & 0xFF);
+            if (rank >= target) {
+                return (int) (scratch[i] >> 8);
+            }
+        }
+        return max;
+    }
+
+    int retainedItems() {
+        return items.length - levelStarts[0];
+    }
+
+    int levelCount() {
+        return levelStarts.length - 1;
+    }
+
+    // Approximate heap size with compressed references: the object and its two arrays.
+    long footprintBytes() {
+        return 48 + 16 + 4L * items.length + 16 + 4L * levelStarts.length;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(k);
+        out.writeLong(count);
+        out.writeInt(min);
+        out.writeInt(max);
+        out.writeBoolean(promoteOdd);
+        out.writeByte(levelCount());
+        for (int h = 0; h < levelCount(); h++) {
+            out.writeShort(levelStarts[h + 1] - levelStarts[h]);
+            for (int i = levelStarts[h]; i < levelStarts[h + 1]; i++) {
+                out.writeInt(items[i]);
+            }
+        }
+    }
+
+    static QuantileSketch readFrom(DataInput in) throws IOException {
+        var sketch = new QuantileSketch(in.readInt());
+        sketch.count = in.readLong();
+        sketch.min = in.readInt();
+        sketch.max = in.readInt();
+        sketch.promoteOdd = in.readBoolean();
+        var levelCount = in.readUnsignedByte();
+        if (levelCount == 0) {
+            throw new IOException("Quantile sketch without levels");
+        }
+
+        var levels = new int[levelCount][];
+        var retained = 0;
+        for (int h = 0; h < levelCount; h++) {
+            levels[h] = new int[in.readUnsignedShort()];
+            for (int i = 0; i < levels[h].length; i++) {
+                levels[h][i] = in.readInt();
+            }
+            retained += levels[h].length;
+        }
+
+        sketch.items = new int[retained];
+        sketch.levelStarts = new int[levelCount + 1];
+        var position = 0;
+        for (int h = 0; h < levelCount; h++) {
+            sketch.levelStarts[h] = position;
+            System.arraycopy(levels[h], 0, sketch.items, position, levels[h].length);
+            position += levels[h].length;
+        }
+        sketch.levelStarts[levelCount] = position;
+        sketch.compress();
+        return sketch;
+    }
+
+    private int capacity(int level) {
+        var depth = levelCount() - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3, depth)));
+    }
+
+    private int budget() {
+        var budget = 0;
+        for (int h = 0; h < levelCount(); h++) {
+            budget += capacity(h);
+        }
+        return budget;
+    }
+
+    // Compacts until the items are under the budget, then sizes the buffer to the budget, which
+    // only grows when a level is added (or shrinks back after a merge).
+    private void compress() {
+        while (retainedItems() >= budget()) {
+            for (int h = 0; h < levelCount(); h++) {
+                if (levelStarts[h + 1] - levelStarts[h] >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+
+        var budget = budget();
+        if (items.length != budget) {
+            resize(budget);
+        }
+    }
+
+    private void compact(int level) {
+        if (level == levelCount() - 1) {
+            // A new, empty top level at the end of the buffer.
+            levelStarts = Arrays.copyOf(levelStarts, levelStarts.length + 1);
+            levelStarts[levelStarts.length - 1] = items.length;
+        }
+
+        var start = levelStarts[level];
+        var size = levelStarts[level + 1] - start;
+        Arrays.sort(items, start, start + size);
+
+        // Every other item moves to the front of the level, then next to the level above. An
+        // odd item out stays behind so that the total weight is unchanged.
+        var paired = size & ~1;
+        var promoted = paired >> 1;
+        var leftover = items[start + size - 1];
+        var offset = promoteOdd ? 1 : 0;
+        for (int i = 0; i < promoted; i++) {
+            items[start + i] = items[start + 2 * i + offset];
+        }
+        promoteOdd = !promoteOdd;
+
+        var above = levelStarts[level + 1] - promoted;
+        System.arraycopy(items, start, items, above, promoted);
+        levelStarts[level + 1] = above;
+        var newStart = above - (size - paired);
+        if (paired < size) {
+            items[newStart] = leftover;
+        }
+
+        // Shift the levels below up against this one, which leaves the freed space in front.
+        var shift = newStart - start;
+        var bottom = levelStarts[0];
+        System.arraycopy(items, bottom, items, bottom + shift, start - bottom);
+        for (int h = 0; h <= level; h++) {
+            levelStarts[h] += shift;
+        }
+    }
+
+    // Moves the items to the end of a buffer of the given length, which must hold them.
+    private void resize(int length) {
+        var retained = retainedItems();
+        var resized = new int[length];
+        System.arraycopy(items, levelStarts[0], resized, length - retained, retained);
+        var shift = length - items.length;
+        for (int h = 0; h < levelStarts.length; h++) {
+            levelStarts[h] += shift;
+        }
+        items = resized;
+    }
+
+    // Appends level h's items, if it has that level, to target at position; returns the end.
+    private int copyLevel(int level, int[] target, int position) {
+        if (level >= levelCount()) {
+            return position;
+        }
+        var size = levelStarts[level + 1] - levelStarts[level];
+        System.arraycopy(items, levelStarts[level], target, position, size);
+        return position + size;
+    }
+}
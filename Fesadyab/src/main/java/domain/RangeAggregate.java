@@ -0,0 +1,15 @@
+package domain;
+
+// Totals over a range of history positions, optionally for one account.
+public record RangeAggregate(long sum, long count, long debitSum, long debitCount) {
+    static final RangeAggregate EMPTY = new RangeAggregate(0, 0, 0, 0);
+
+    // Truncated like TransactionEngine's per-account average; 0 for an empty range.
+    public int average() {
+        return count == 0 ? 0 : (int) (sum / count);
+    }
+
+    public int debitAverage() {
+        return debitCount == 0 ? 0 : (int) (debitSum / debitCount);
+    }
+}
@@ -0,0 +1,138 @@
+package domain;
+
+import java.util.Arrays;
+
+// Prefix sums over the history, overall and per account, so range totals are two lookups
+// instead of a loop. Since the history only appends at the end and evicts at the front,
+// prefix sums need no tree: an append is O(1) and a range query over all accounts is O(1).
+// Each account also keeps the positions of its transactions, and a per-account query binary
+// searches them in O(log n). Positions are counted from the first transaction ever added, so
+// eviction only advances the front of each column.
+class RangeAggregateIndex {
+    private final Prefixes all = new Prefixes(false);
+    private final IntIntHashMap rows = new IntIntHashMap();
+    private Prefixes[] accounts = new Prefixes[16];
+    private int accountCount;
+    // Absolute position of history index 0.
+    private long evicted;
+
+    void add(int accountId, int amount, boolean isDebit) {
+        var position = evicted + all.size;
+        all.append(position, amount, isDebit);
+
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            if (accountCount == accounts.length) {
+                accounts = Arrays.copyOf(accounts, accountCount << 1);
+            }
+            row = accountCount++;
+            accounts[row] = new Prefixes(true);
+            rows.put(accountId, row);
+        }
+        accounts[row].append(position, amount, isDebit);
+    }
+
+    // Drops the oldest transaction, which belongs to accountId.
+    void removeFirst(int accountId) {
+        all.removeFirst();
+        accounts[rows.get(accountId)].removeFirst();
+        evicted++;
+    }
+
+    // Totals over history positions [from, to).
+    RangeAggregate aggregate(int from, int to) {
+        return all.aggregate(from, to);
+    }
+
+    RangeAggregate aggregate(int accountId, int from, int to) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            return RangeAggregate.EMPTY;
+        }
+
+        var prefixes = accounts[row];
+        return prefixes.aggregate(prefixes.rank(evicted + from), prefixes.rank(evicted + to));
+    }
+
+    // Running totals of a sequence of transactions. Entry head + i of the sum columns holds
+    // the totals of everything before the i-th retained transaction, so the columns have one
+    // more entry than there are transactions.
+    private static final class Prefixes {
+        long[] positions;
+        long[] sums = new long[4];
+        long[] debitSums = new long[4];
+        long[] debitCounts = new long[4];
+        int head;
+        int size;
+
+        Prefixes(boolean trackPositions) {
+            positions = trackPositions ? new long[4] : null;
+        }
+
+        void append(long position, int amount, boolean isDebit) {
+            var last = head + size;
+            if (last + 1 == sums.length) {
+                reallocate();
+                last = size;
+            }
+
+            if (positions != null) {
+                positions[last] = position;
+            }
+            sums[last + 1] = sums[last] + amount;
+            debitSums[last + 1] = debitSums[last] + (isDebit ? amount : 0);
+            debitCounts[last + 1] = debitCounts[last] + (isDebit ? 1 : 0);
+            size++;
+        }
+
+        void removeFirst() {
+            head++;
+            size--;
+        }
+
+        // Number of retained transactions at positions before the given one.
+        int rank(long position) {
+            var low = head;
+            var high = head + size;
+            while (low < high) {
+                var middle = (low + high) >>> 1;
+                if (positions[middle] < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - head;
+        }
+
+        RangeAggregate aggregate(int from, int to) {
+            var start = head + from;
+            var end = head + to;
+            return new RangeAggregate(sums[end] - sums[start], to - from, debitSums[end] - debitSums[start],
+                    debitCounts[end] - debitCounts[start]);
+        }
+
+        // Moves the retained entries to the front of fresh columns, growing them unless more
+        // than a quarter of the current capacity was freed by eviction.
+        private void reallocate() {
+            var capacity = sums.length;
+            if (head <= capacity >> 2) {
+                capacity = Math.max(4, capacity + (capacity >> 1));
+            }
+
+            if (positions != null) {
+                positions = copyRetained(positions, size, capacity);
+            }
+            sums = copyRetained(sums, size + 1, capacity);
+            debitSums = copyRetained(debitSums, size + 1, capacity);
+            debitCounts = copyRetained(debitCounts, size + 1, capacity);
+            head = 0;
+        }
+
+        private long[] copyRetained(long[] column, int length, int capacity) {
+            var copy = new long[capacity];
+            System.arraycopy(column, head, copy, 0, length);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package domain;
+
+// Plain loops; used when the Vector API is not available. Sums are accumulated in longs, so
+// they don't overflow on large histories.
+class ScalarScanKernel implements ScanKernel {
+    @Override
+    public long sumAbove(int[] amounts, int from, int to, int threshold) {
+        var sum = 0L;
+        for (int i = from; i < to; i++) {
+            if (amounts[i] > threshold) {
+                sum += amounts[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int countAbove(int[] amounts, int from, int to, int threshold) {
+        var count = 0;
+        for (int i = from; i < to; i++) {
+            if (amounts[i] > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long sumForAccount(int[] accountIds, int[] amounts, int from, int to, int accountId) {
+        var sum = 0L;
+        for (int i = from; i < to; i++) {
+            if (accountIds[i] == accountId) {
+                sum += amounts[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int countForAccount(int[] accountIds, int from, int to, int accountId) {
+        var count = 0;
+        for (int i = from; i < to; i++) {
+            if (accountIds[i] == accountId) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,14 @@
+package domain;
+
+// Masked sums and counts over primitive amount and account columns, the inner loops of full
+// history scans. Ranges are [from, to) into the arrays. See ScanKernels for the
+// implementations.
+interface ScanKernel {
+    long sumAbove(int[] amounts, int from, int to, int threshold);
+
+    int countAbove(int[] amounts, int from, int to, int threshold);
+
+    long sumForAccount(int[] accountIds, int[] amounts, int from, int to, int accountId);
+
+    int countForAccount(int[] accountIds, int from, int to, int accountId);
+}
@@ -0,0 +1,24 @@
+package domain;
+
+// Picks the scan kernel once per JVM: the Vector API kernel when the jdk.incubator.vector
+// module was added to the boot layer (--add-modules jdk.incubator.vector), the scalar one
+// otherwise. The vector kernel is loaded by name, so nothing refers to the incubator classes
+// unless the module is there.
+final class ScanKernels {
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+    static final ScanKernel BEST = load();
+
+    private ScanKernels() {
+    }
+
+    private static ScanKernel load() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (ScanKernel) Class.forName("domain.VectorScanKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar kernel.
+            }
+        }
+        return new ScalarScanKernel();
+    }
+}
@@ -0,0 +1,60 @@
+package domain;
+
+// Incremental form of TransactionEngine.getTransactionPatternAboveThreshold. Amounts are fed
+// in history order and score() returns what the full scan would return for the history seen
+// so far, without walking it again.
+class ThresholdPatternDetector {
+    final int threshold;
+    boolean started;
+    int previousAmount;
+    int diff;
+    boolean patternBroken;
+
+    ThresholdPatternDetector(int threshold) {
+        this.threshold = threshold;
+    }
+
+    void accept(int amount) {
+        if (!started) {
+            started = true;
+            previousAmount = amount;
+            return;
+        }
+
+        if (patternBroken || amount <= threshold) {
+            return;
+        }
+
+        if (diff == 0) {
+            diff = amount - previousAmount;
+            previousAmount = amount;
+        } else if (diff != amount - previousAmount) {
+            patternBroken = true;
+        }
+    }
+
+    // Persistent-style update for shared readers: returns this when the amount does not change
+    // the state, otherwise a new detector with the amount applied. This one is left untouched.
+    ThresholdPatternDetector after(int amount) {
+        if (started && (patternBroken || amount <= threshold || (diff != 0 && diff == amount - previousAmount))) {
+            return this;
+        }
+
+        var next = copy();
+        next.accept(amount);
+        return next;
+    }
+
+    ThresholdPatternDetector copy() {
+        var copy = new ThresholdPatternDetector(threshold);
+        copy.started = started;
+        copy.previousAmount = previousAmount;
+        copy.diff = diff;
+        copy.patternBroken = patternBroken;
+        return copy;
+    }
+
+    int score() {
+        return patternBroken ? 0 : diff;
+    }
+}
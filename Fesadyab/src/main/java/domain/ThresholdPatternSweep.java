@@ -0,0 +1,85 @@
+package domain;
+
+import java.util.Arrays;
+
+// Answers getTransactionPatternAboveThreshold for many thresholds with two passes over the
+// history instead of one per threshold.
+//
+// For a threshold t the scan starts from the first amount, and the first later amount above t
+// that differs from it fixes diff; from then on previousAmount stays put, so the pattern holds
+// exactly when every later amount above t equals previousAmount + diff. The forward pass finds
+// where each threshold's diff is fixed: that is where the running maximum of amounts differing
+// from the first one passes t, so thresholds in ascending order are assigned as the maximum
+// grows. The backward pass keeps the two largest distinct amounts seen so far, which gives the
+// largest later amount other than the expected one, and checks it against t.
+class ThresholdPatternSweep {
+    private static final int NOT_FIXED = -1;
+
+    private ThresholdPatternSweep() {
+    }
+
+    static int[] scan(TransactionHistory history, int[] thresholds) {
+        var scores = new int[thresholds.length];
+        if (history.size() < 2 || thresholds.length == 0) {
+            return scores;
+        }
+
+        var ascending = ascendingOrder(thresholds);
+        var fixedAt = new int[thresholds.length];
+        Arrays.fill(fixedAt, NOT_FIXED);
+
+        var firstAmount = history.amount(0);
+        var runningMax = Long.MIN_VALUE;
+        var fixed = 0;
+        for (int i = 1; i < history.size() && fixed < thresholds.length; i++) {
+            var amount = history.amount(i);
+            if (amount == firstAmount || amount <= runningMax) {
+                continue;
+            }
+
+            runningMax = amount;
+            while (fixed < thresholds.length && thresholds[ascending[fixed]] < amount) {
+                fixedAt[ascending[fixed++]] = i;
+            }
+        }
+
+        // Thresholds that got a diff, by descending threshold, are by descending fix position.
+        var largest = Long.MIN_VALUE;
+        var secondLargest = Long.MIN_VALUE;
+        var next = fixed - 1;
+        for (int i = history.size() - 1; i >= 1 && next >= 0; i--) {
+            while (next >= 0 && fixedAt[ascending[next]] == i) {
+                var t = ascending[next--];
+                var previousAmount = history.amount(i);
+                var diff = previousAmount - firstAmount;
+                var expected = previousAmount + diff;
+                var largestOther = largest != expected ? largest : secondLargest;
+                scores[t] = largestOther > thresholds[t] ? 0 : diff;
+            }
+
+            var amount = history.amount(i);
+            if (amount > largest) {
+                secondLargest = largest;
+                largest = amount;
+            } else if (amount < largest && amount > secondLargest) {
+                secondLargest = amount;
+            }
+        }
+        return scores;
+    }
+
+    private static int[] ascendingOrder(int[] thresholds) {
+        // Threshold in the high bits and index in the low ones, so one primitive sort orders both.
+        var packed = new long[thresholds.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            packed[i] = ((long) thresholds[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+
+        var order = new int[thresholds.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            order[i] = (int) packed[i];
+        }
+        return order;
+    }
+}
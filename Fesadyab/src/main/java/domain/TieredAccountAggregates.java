@@ -0,0 +1,177 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Account aggregates split into a bounded hot tier on the heap and a cold tier in a
+// ColdAccountStore, so heap use follows the set of active accounts rather than every account
+// ever seen. The hot tier is the inherited dense rows, capped at hotCapacity; when a new row is
+// needed and the tier is full, a CLOCK sweep over per-row reference bits picks a row that has
+// not been used since the hand last passed and spills it to the cold tier.
+//
+// Adding a transaction faults its account back in. Reads and removals of a cold account work
+// on the cold row directly: reads must not move rows because ParallelBatchScorer reads from
+// several threads, and transactions leaving a window say nothing about current activity.
+class TieredAccountAggregates extends AccountAggregates implements AutoCloseable {
+    private final int hotCapacity;
+    private final ColdAccountStore cold;
+    private boolean[] referenced = new boolean[16];
+    private int hand;
+    long faults;
+    long spills;
+
+    TieredAccountAggregates(int hotCapacity, Path spillFile) throws IOException {
+        if (hotCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid hot account capacity: " + hotCapacity);
+        }
+        this.hotCapacity = hotCapacity;
+        cold = ColdAccountStore.open(spillFile);
+    }
+
+    // A plain, untiered copy holding both tiers.
+    @Override
+    AccountAggregates copy() {
+        var copy = super.copy();
+        cold.copyInto(copy);
+        return copy;
+    }
+
+    @Override
+    void add(int accountId, int amount, boolean isDebit) {
+        var row = rows.get(accountId);
+        if (row == IntIntHashMap.MISSING) {
+            faultIn(accountId);
+        } else {
+            referenced[row] = true;
+        }
+        super.add(accountId, amount, isDebit);
+    }
+
+    @Override
+    void remove(int accountId, int amount, boolean isDebit) {
+        if (rows.get(accountId) != IntIntHashMap.MISSING || !cold.remove(accountId, amount, isDebit)) {
+            super.remove(accountId, amount, isDebit);
+        }
+    }
+
+    @Override
+    int average(int accountId) {
+        var count = count(accountId);
+        return count == 0 ? 0 : (int) (sum(accountId) / count);
+    }
+
+    @Override
+    long sum(int accountId) {
+        var row = rows.get(accountId);
+        if (row != IntIntHashMap.MISSING) {
+            return sums[row];
+        }
+        var slot = cold.find(accountId);
+        return slot < 0 ? 0 : cold.sum(slot);
+    }
+
+    @Override
+    long count(int accountId) {
+        var row = rows.get(accountId);
+        if (row != IntIntHashMap.MISSING) {
+            return counts[row];
+        }
+        var slot = cold.find(accountId);
+        return slot < 0 ? 0 : cold.count(slot);
+    }
+
+    @Override
+    long debitSum(int accountId) {
+        var row = rows.get(accountId);
+        if (row != IntIntHashMap.MISSING) {
+            return debitSums[row];
+        }
+        var slot = cold.find(accountId);
+        return slot < 0 ? 0 : cold.debitSum(slot);
+    }
+
+    @Override
+    long debitCount(int accountId) {
+        var row = rows.get(accountId);
+        if (row != IntIntHashMap.MISSING) {
+            return debitCounts[row];
+        }
+        var slot = cold.find(accountId);
+        return slot < 0 ? 0 : cold.debitCount(slot);
+    }
+
+    @Override
+    int accountCount() {
+        return size + cold.size();
+    }
+
+    int hotAccountCount() {
+        return size;
+    }
+
+    int coldAccountCount() {
+        return cold.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cold.close();
+    }
+
+    @Override
+    int newRow(int accountId) {
+        if (size == hotCapacity) {
+            spill(clockVictim());
+        }
+
+        var row = super.newRow(accountId);
+        if (row == referenced.length) {
+            referenced = Arrays.copyOf(referenced, accountIds.length);
+        }
+        referenced[row] = true;
+        return row;
+    }
+
+    @Override
+    void removeRow(int row) {
+        referenced[row] = referenced[size - 1];
+        super.removeRow(row);
+    }
+
+    // Moves a cold account's row into the hot tier; new accounts get an empty row.
+    private void faultIn(int accountId) {
+        var slot = cold.find(accountId);
+        if (slot < 0) {
+            newRow(accountId);
+            return;
+        }
+
+        faults++;
+        var sum = cold.sum(slot);
+        var count = cold.count(slot);
+        var debitSum = cold.debitSum(slot);
+        var debitCount = cold.debitCount(slot);
+        cold.delete(slot);
+        addRow(accountId, sum, count, debitSum, debitCount);
+    }
+
+    // Clears reference bits under the hand until it reaches a row without one.
+    private int clockVictim() {
+        while (true) {
+            if (hand >= size) {
+                hand = 0;
+            }
+            if (!referenced[hand]) {
+                return hand++;
+            }
+            referenced[hand++] = false;
+        }
+    }
+
+    private void spill(int row) {
+        spills++;
+        cold.put(accountIds[row], sums[row], counts[row], debitSums[row], debitCounts[row]);
+        removeRow(row);
+    }
+}
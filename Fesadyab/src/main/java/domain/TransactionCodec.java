@@ -0,0 +1,157 @@
+package domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Binary form of a Transaction shared by the journal, the binary feed and snapshots.
+//
+// Fixed-width records are 13 bytes little endian whatever the buffer's byte order:
+// transactionId, accountId, amount (4 bytes each) and a flags byte with bit 0 = debit. The
+// timestamp is not part of the record; stores that keep it write it next to the record.
+//
+// Packed batches start with the record count as a varint, followed per record by the id as a
+// zigzag varint delta from the previous id, the account and amount as zigzag varints and the
+// flags byte. Batches sorted by id pack to a few bytes per record.
+//
+// Decoding fills caller-owned Transaction objects, so bulk decoding allocates nothing once the
+// target array is populated.
+public final class TransactionCodec {
+    public static final int RECORD_BYTES = 13;
+    static final int MAX_VARINT_BYTES = 5;
+    static final int MAX_PACKED_RECORD_BYTES = 3 * MAX_VARINT_BYTES + 1;
+    private static final byte DEBIT_FLAG = 1;
+
+    private static final VarHandle INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private TransactionCodec() {
+    }
+
+    static void encode(Transaction txn, ByteBuffer buffer, int position) {
+        INT.set(buffer, position, txn.transactionId);
+        INT.set(buffer, position + 4, txn.accountId);
+        INT.set(buffer, position + 8, txn.amount);
+        buffer.put(position + 12, txn.isDebit ? DEBIT_FLAG : 0);
+    }
+
+    // Leaves txn.timestamp untouched.
+    static void decode(ByteBuffer buffer, int position, Transaction txn) {
+        txn.transactionId = (int) INT.get(buffer, position);
+        txn.accountId = (int) INT.get(buffer, position + 4);
+        txn.amount = (int) INT.get(buffer, position + 8);
+        txn.isDebit = (buffer.get(position + 12) & DEBIT_FLAG) != 0;
+    }
+
+    // Encodes transactions[from, from + count) at the buffer's position, as many as fit.
+    // Returns the number encoded.
+    public static int encode(Transaction[] transactions, int from, int count, ByteBuffer buffer) {
+        var encoded = Math.min(count, buffer.remaining() / RECORD_BYTES);
+        var position = buffer.position();
+        for (int i = 0; i < encoded; i++) {
+            encode(transactions[from + i], buffer, position);
+            position += RECORD_BYTES;
+        }
+        buffer.position(position);
+        return encoded;
+    }
+
+    // Decodes up to into.length whole records from the buffer's position into the array,
+    // reusing its Transaction objects. Returns the number decoded.
+    public static int decode(ByteBuffer buffer, Transaction[] into) {
+        var decoded = Math.min(into.length, buffer.remaining() / RECORD_BYTES);
+        var position = buffer.position();
+        for (int i = 0; i < decoded; i++) {
+            decode(buffer, position, slot(into, i));
+            position += RECORD_BYTES;
+        }
+        buffer.position(position);
+        return decoded;
+    }
+
+    static int maxPackedBytes(int count) {
+        return MAX_VARINT_BYTES + count * MAX_PACKED_RECORD_BYTES;
+    }
+
+    // Writes transactions[from, from + count) as one packed batch at the buffer's position.
+    // Throws BufferOverflowException, leaving the position unchanged, if the batch doesn't fit.
+    public static void encodePacked(Transaction[] transactions, int from, int count, ByteBuffer buffer) {
+        var start = buffer.position();
+        try {
+            putVarint(buffer, count);
+            var previousId = 0;
+            for (int i = from; i < from + count; i++) {
+                var txn = transactions[i];
+                putVarint(buffer, zigzag(txn.transactionId - previousId));
+                putVarint(buffer, zigzag(txn.accountId));
+                putVarint(buffer, zigzag(txn.amount));
+                buffer.put(txn.isDebit ? DEBIT_FLAG : 0);
+                previousId = txn.transactionId;
+            }
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    // Reads one packed batch into the array, reusing its Transaction objects. Returns the
+    // number of transactions in the batch.
+    public static int decodePacked(ByteBuffer buffer, Transaction[] into) {
+        var count = getVarint(buffer);
+        if (count < 0 || count > into.length) {
+            throw new IllegalArgumentException("Packed batch of " + count + " transactions doesn't fit "
+                    + into.length);
+        }
+
+        var previousId = 0;
+        for (int i = 0; i < count; i++) {
+            var txn = slot(into, i);
+            txn.transactionId = previousId + unzigzag(getVarint(buffer));
+            txn.accountId = unzigzag(getVarint(buffer));
+            txn.amount = unzigzag(getVarint(buffer));
+            txn.isDebit = (buffer.get() & DEBIT_FLAG) != 0;
+            previousId = txn.transactionId;
+        }
+        return count;
+    }
+
+    // Unsigned LEB128.
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        var value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            var b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static Transaction slot(Transaction[] transactions, int index) {
+        var txn = transactions[index];
+        if (txn == null) {
+            txn = new Transaction();
+            transactions[index] = txn;
+        }
+        return txn;
+    }
+}
@@ -1,31 +1,94 @@
 package domain;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
 
-public class TransactionEngine {
-    ArrayList<Transaction> transactionHistory;
+public class TransactionEngine implements AutoCloseable {
+    TransactionHistory transactionHistory;
+    AccountAggregates accountAggregates;
+    IntHashSet transactionIds;
     int THRESHOLD = 1000;
+    ThresholdPatternDetector thresholdPattern;
+    TransactionWindow window;
+    long latestTimestamp = Long.MIN_VALUE;
+    TransactionJournal journal;
+    EngineMetrics metrics;
+    FraudDetectorChain detectors;
+    RangeAggregateIndex rangeAggregates;
 
     public TransactionEngine() {
-        transactionHistory = new ArrayList<>();
+        this(new ColumnarTransactionHistory(), null);
     }
 
-    int getAverageTransactionAmountByAccount(int accountId) {
-        var totalAmount = 0;
-        var count = 0;
+    // Windowed mode: transactions that fall out of the window are evicted from the history and
+    // subtracted from the account aggregates and the id index, so memory follows the window
+    // size. An evicted id is accepted again if it reappears. The threshold pattern keeps
+    // following the whole stream.
+    public TransactionEngine(TransactionWindow window) {
+        this(new ColumnarTransactionHistory(), window);
+    }
 
-        for (Transaction txn : transactionHistory) {
-            if (txn.accountId == accountId) {
-                totalAmount += txn.amount;
-                count++;
-            }
-        }
+    // Baseline mode: the average check uses a per-account exponentially weighted mean
+    // (weight alpha for the newest amount) instead of the all-time average, and neither the
+    // history nor the all-time aggregates are kept, so memory per account is constant. The
+    // transaction id index still grows with the number of ids seen.
+    public static TransactionEngine withEwmaBaselines(double alpha) {
+        var engine = new TransactionEngine(new DiscardingTransactionHistory(), null);
+        engine.accountAggregates = null;
+        engine.detectors = new FraudDetectorChain();
+        engine.detectors.add(new EwmaAmountDetector(alpha), EngineMetrics.Stage.AVERAGE);
+        engine.detectors.add(new PatternAboveThresholdDetector(engine), EngineMetrics.Stage.PATTERN);
+        return engine;
+    }
 
-        if (count == 0) {
-            return 0;
-        }
+    // Off-heap mode: the history is kept in direct memory, so the GC does not trace it and the
+    // heap stays flat however many transactions are retained. window may be null.
+    public static TransactionEngine withOffHeapHistory(TransactionWindow window) {
+        return new TransactionEngine(new OffHeapTransactionHistory(), window);
+    }
+
+    // Tiered mode: at most hotAccounts account aggregates stay on the heap. Accounts that go
+    // quiet are spilled to a memory-mapped scratch file and faulted back in when they transact
+    // again, so aggregate memory follows the active accounts. The spill file is scratch space:
+    // it is overwritten, and removed when the engine is closed or at the latest when the JVM
+    // exits. window may be null.
+    //
+    // Only the aggregates are tiered. The id index holds every id in the window, and the
+    // history every retained transaction, which is on the heap unless offHeapHistory is set.
+    // Heap use follows the active accounts only with a window bounding both and
+    // offHeapHistory; without a window they grow with every transaction.
+    public static TransactionEngine withTieredAccounts(int hotAccounts, Path spillFile, TransactionWindow window)
+            throws IOException {
+        return withTieredAccounts(hotAccounts, spillFile, window, false);
+    }
+
+    public static TransactionEngine withTieredAccounts(int hotAccounts, Path spillFile, TransactionWindow window,
+                                                       boolean offHeapHistory) throws IOException {
+        var history = offHeapHistory ? new OffHeapTransactionHistory() : new ColumnarTransactionHistory();
+        var engine = new TransactionEngine(history, window);
+        engine.accountAggregates = new TieredAccountAggregates(hotAccounts, spillFile);
+        return engine;
+    }
 
-        return totalAmount / count;
+    TransactionEngine(TransactionHistory transactionHistory) {
+        this(transactionHistory, null);
+    }
+
+    TransactionEngine(TransactionHistory transactionHistory, TransactionWindow window) {
+        this.transactionHistory = transactionHistory;
+        this.window = window;
+        accountAggregates = new AccountAggregates();
+        transactionIds = new IntHashSet();
+        thresholdPattern = new ThresholdPatternDetector(THRESHOLD);
+        detectors = new FraudDetectorChain();
+        detectors.add(new AverageAmountDetector(this), EngineMetrics.Stage.AVERAGE);
+        detectors.add(new PatternAboveThresholdDetector(this), EngineMetrics.Stage.PATTERN);
+    }
+
+    int getAverageTransactionAmountByAccount(int accountId) {
+        return accountAggregates.average(accountId);
     }
 
     int getTransactionPatternAboveThreshold(int threshold) {
@@ -34,21 +97,24 @@ public class TransactionEngine {
         }
 
         var diff = 0;
-        var previous = transactionHistory.getFirst();
+        var previousId = transactionHistory.transactionId(0);
+        var previousAmount = transactionHistory.amount(0);
 
-        for (Transaction txn : transactionHistory) {
-            if (txn.transactionId == previous.transactionId) {
+        for (int i = 0; i < transactionHistory.size(); i++) {
+            if (transactionHistory.transactionId(i) == previousId) {
                 continue;
             }
 
-            if (txn.amount <= threshold) {
+            var amount = transactionHistory.amount(i);
+            if (amount <= threshold) {
                 continue;
             }
 
             if (diff == 0) {
-                diff = txn.amount - previous.amount;
-                previous = txn;
-            } else if (diff != txn.amount - previous.amount) {
+                diff = amount - previousAmount;
+                previousId = transactionHistory.transactionId(i);
+                previousAmount = amount;
+            } else if (diff != amount - previousAmount) {
                 return 0;
             }
         }
@@ -56,27 +122,229 @@ public class TransactionEngine {
         return diff;
     }
 
+    // getTransactionPatternAboveThreshold for each of the thresholds, in the same order, at
+    // roughly the cost of two scans however many thresholds are asked for.
+    public int[] getTransactionPatternsAboveThresholds(int... thresholds) {
+        return ThresholdPatternSweep.scan(transactionHistory, thresholds);
+    }
+
+    // Ad-hoc full scans of the history, for analytics that the running aggregates don't
+    // cover. On the default history they run on the vectorized scan kernel when the JVM was
+    // started with --add-modules jdk.incubator.vector.
+    public long countAboveThreshold(int threshold) {
+        return transactionHistory.countAbove(threshold);
+    }
+
+    public long sumAboveThreshold(int threshold) {
+        return transactionHistory.sumAbove(threshold);
+    }
+
+    // Average amount of each account over the retained history, truncated like
+    // getAverageTransactionAmountByAccount; 0 for accounts without transactions.
+    public int[] scanAveragesByAccount(int... accountIds) {
+        var averages = new int[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++) {
+            var count = transactionHistory.countForAccount(accountIds[i]);
+            averages[i] = count == 0 ? 0 : (int) (transactionHistory.sumForAccount(accountIds[i]) / count);
+        }
+        return averages;
+    }
+
     int detectFraudulentTransaction(Transaction txn) {
         var averageAmount = getAverageTransactionAmountByAccount(txn.accountId);
+        return excessiveDebitScore(txn, averageAmount);
+    }
+
+    static int excessiveDebitScore(Transaction txn, int averageAmount) {
+        return excessiveDebitScore(txn.isDebit, txn.amount, averageAmount, 2);
+    }
 
-        if (txn.isDebit && txn.amount > 2 * averageAmount) {
-            return txn.amount - 2 * averageAmount;  // Excessive debit, marked as suspicious
+    static int excessiveDebitScore(boolean isDebit, int amount, int averageAmount, int multiplier) {
+        if (isDebit && amount > multiplier * averageAmount) {
+            return amount - multiplier * averageAmount;  // Excessive debit, marked as suspicious
         }
 
         return 0;
     }
 
     public int addTransactionAndDetectFraud(Transaction txn) {
-        if (transactionHistory.contains(txn)) {
+        var metrics = this.metrics;
+        var start = metrics == null ? 0 : System.nanoTime();
+
+        if (!transactionIds.add(txn.transactionId)) {
+            if (metrics != null) {
+                metrics.recordDuplicate(start);
+            }
             return 0;
         }
 
-        var fraudScore = detectFraudulentTransaction(txn);
-        if (fraudScore == 0) {
-            fraudScore = getTransactionPatternAboveThreshold(THRESHOLD);
+        if (metrics != null) {
+            metrics.record(EngineMetrics.Stage.DEDUP, start);
         }
+        return scoreAndRecord(txn);
+    }
 
-        transactionHistory.add(txn);
+    // Scores and appends a transaction whose id has already been registered in transactionIds.
+    int scoreAndRecord(Transaction txn) {
+        var metrics = this.metrics;
+        var start = metrics == null ? 0 : System.nanoTime();
+
+        var fraudScore = detectors.score(txn, metrics, start);
+        if (metrics != null) {
+            start = System.nanoTime();
+        }
+
+        appendAccepted(txn);
+        thresholdPattern.accept(txn.amount);
+        detectors.onAccepted(txn);
+        if (window != null) {
+            evictExpired(txn.timestamp);
+        }
+        if (metrics != null) {
+            metrics.record(EngineMetrics.Stage.APPEND, start);
+            metrics.recordAccepted(fraudScore);
+        }
         return fraudScore;
     }
+
+    // Adds a detector to the chain run on every accepted transaction. Detectors run cheapest
+    // first (ties in the order they were added, after the two built-in checks) and the first
+    // non-zero score wins.
+    public void addFraudDetector(FraudDetector detector) {
+        detectors.add(detector, EngineMetrics.Stage.CUSTOM_DETECTOR);
+    }
+
+    // Lets the chain reorder detectors by observed cost per hit. Off by default, because which
+    // detector answers first decides the reported score.
+    public void setAdaptiveDetectorOrder(boolean adaptive) {
+        detectors.adaptive = adaptive;
+    }
+
+    // Starts recording per-stage latencies and outcome counters; returns the live metrics.
+    public EngineMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new EngineMetrics();
+        }
+        return metrics;
+    }
+
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    // Starts keeping prefix sums over the history, built from the transactions retained so
+    // far, so that the aggregate queries below don't loop over the history.
+    public void enableRangeAggregates() {
+        if (transactionHistory instanceof DiscardingTransactionHistory) {
+            throw new IllegalStateException("Range aggregates need an engine that keeps its history");
+        }
+        if (rangeAggregates != null) {
+            return;
+        }
+
+        rangeAggregates = new RangeAggregateIndex();
+        for (int i = 0; i < transactionHistory.size(); i++) {
+            rangeAggregates.add(transactionHistory.accountId(i), transactionHistory.amount(i),
+                    transactionHistory.isDebit(i));
+        }
+    }
+
+    // Totals over history positions [from, to), position 0 being the oldest retained transaction.
+    public RangeAggregate aggregateRange(int from, int to) {
+        Objects.checkFromToIndex(from, to, transactionHistory.size());
+        return requireRangeAggregates().aggregate(from, to);
+    }
+
+    public RangeAggregate aggregateRange(int accountId, int from, int to) {
+        Objects.checkFromToIndex(from, to, transactionHistory.size());
+        return requireRangeAggregates().aggregate(accountId, from, to);
+    }
+
+    // Totals over the last n transactions of the history (all of it if shorter).
+    public RangeAggregate aggregateLast(int n) {
+        var size = transactionHistory.size();
+        return aggregateRange(size - Math.min(n, size), size);
+    }
+
+    // Totals of the account's transactions among the last n of the history.
+    public RangeAggregate aggregateLast(int accountId, int n) {
+        var size = transactionHistory.size();
+        return aggregateRange(accountId, size - Math.min(n, size), size);
+    }
+
+    private RangeAggregateIndex requireRangeAggregates() {
+        if (rangeAggregates == null) {
+            throw new IllegalStateException("Range aggregates are not enabled");
+        }
+        return rangeAggregates;
+    }
+
+    void appendAccepted(Transaction txn) {
+        transactionHistory.add(txn);
+        if (accountAggregates != null) {
+            accountAggregates.add(txn);
+        }
+        if (rangeAggregates != null) {
+            rangeAggregates.add(txn.accountId, txn.amount, txn.isDebit);
+        }
+        if (journal != null) {
+            journal.append(txn);
+        }
+    }
+
+    private void evictExpired(long timestamp) {
+        latestTimestamp = Math.max(latestTimestamp, timestamp);
+
+        while (window.isOldestExpired(transactionHistory, latestTimestamp)) {
+            transactionIds.remove(transactionHistory.transactionId(0));
+            accountAggregates.remove(transactionHistory.accountId(0), transactionHistory.amount(0),
+                    transactionHistory.isDebit(0));
+            if (rangeAggregates != null) {
+                rangeAggregates.removeFirst(transactionHistory.accountId(0));
+            }
+            transactionHistory.removeFirst();
+        }
+    }
+
+    // Rebuilds this engine from the journal, then journals every transaction it accepts.
+    // The engine must be empty when the journal is attached.
+    public long attachJournal(TransactionJournal journal) throws IOException {
+        if (!transactionHistory.isEmpty() || this.journal != null) {
+            throw new IllegalStateException("Journal must be attached to an empty engine");
+        }
+
+        return resumeJournal(journal, 0);
+    }
+
+    // Replays the journal from fromRecord, e.g. the position a snapshot was taken at, and
+    // attaches it.
+    long resumeJournal(TransactionJournal journal, long fromRecord) throws IOException {
+        var replayed = journal.replay(this, fromRecord);
+        this.journal = journal;
+        return replayed;
+    }
+
+    // Scores every retained transaction again as a fresh engine with the given pattern
+    // threshold and excessive-debit multiplier would on replaying them in order, using all
+    // cores. This engine's own state is left as it is.
+    public int[] rescoreHistory(int threshold, int debitMultiplier) {
+        return new HistoryBackfill(threshold, debitMultiplier).rescore(transactionHistory);
+    }
+
+    public int[] addTransactionsAndDetectFraud(List<Transaction> transactions) {
+        return addTransactionsAndDetectFraud(transactions.toArray(new Transaction[0]), transactions.size());
+    }
+
+    int[] addTransactionsAndDetectFraud(Transaction[] transactions, int count) {
+        return new ParallelBatchScorer(this).score(transactions, count);
+    }
+
+    // Releases what the engine itself opened, i.e. the tiered mode's spill file; a no-op for
+    // the other modes. An attached journal belongs to the caller and stays open.
+    @Override
+    public void close() throws IOException {
+        if (accountAggregates instanceof TieredAccountAggregates tiered) {
+            tiered.close();
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package domain;
+
+// Pre-allocated ring slot of TransactionPipeline. Producers overwrite the transaction fields in
+// place and the pipeline stages fill in the outcome.
+class TransactionEvent {
+    final Transaction transaction = new Transaction();
+    boolean duplicate;
+    int fraudScore;
+    // Set by the scoring stage when scoring threw; fraudScore is then 0.
+    RuntimeException failure;
+}
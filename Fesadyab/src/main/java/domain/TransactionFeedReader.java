@@ -0,0 +1,248 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams transaction feed files into a TransactionEngine in batches. Files are read through a
+// FileChannel into one direct buffer and parsed byte by byte into pre-allocated transactions,
+// so no String or Transaction is created per line. A batch is scored before more of the file
+// is read, which keeps the reader at most one buffer ahead of the engine.
+//
+// CSV lines are transactionId,accountId,amount,isDebit[,timestamp] with isDebit as true/false
+// or 1/0; a header line and CRLF endings are accepted. Ids, accounts and amounts must fit an
+// int and the timestamp a long; anything else, including extra fields, fails the read.
+// Binary files are a sequence of fixed-width TransactionCodec records.
+//
+// Batches scored before a read fails stay in the engine; transactions read since the last
+// batch are dropped, so they never reach the engine through a later read.
+public class TransactionFeedReader {
+    static final int BINARY_RECORD_BYTES = TransactionCodec.RECORD_BYTES;
+    private static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+
+    private final TransactionEngine engine;
+    private final FeedBatchHandler handler;
+    private final Transaction[] batch;
+    private final ByteBuffer buffer;
+    private int batchCount;
+    private long lineNumber;
+
+    public TransactionFeedReader(TransactionEngine engine, FeedBatchHandler handler) {
+        this(engine, handler, DEFAULT_BATCH_SIZE, DEFAULT_BUFFER_BYTES);
+    }
+
+    TransactionFeedReader(TransactionEngine engine, FeedBatchHandler handler, int batchSize, int bufferBytes) {
+        this.engine = engine;
+        this.handler = handler;
+        batch = new Transaction[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = new Transaction();
+        }
+        buffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Returns the number of transactions read.
+    public long readCsv(Path file) throws IOException {
+        var read = 0L;
+        lineNumber = 0;
+        batchCount = 0;
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            var endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                buffer.flip();
+
+                var lineStart = buffer.position();
+                for (int i = lineStart; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        read += parseCsvLine(lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                if (endOfFile && lineStart < buffer.limit()) {
+                    read += parseCsvLine(lineStart, buffer.limit());
+                    lineStart = buffer.limit();
+                }
+
+                buffer.position(lineStart);
+                buffer.compact();
+                if (!buffer.hasRemaining()) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than the read buffer");
+                }
+            }
+            flushBatch();
+        } finally {
+            batchCount = 0;
+        }
+        return read;
+    }
+
+    // Returns the number of transactions read.
+    public long readBinary(Path file) throws IOException {
+        var read = 0L;
+        batchCount = 0;
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0 || buffer.position() > 0) {
+                buffer.flip();
+                if (buffer.remaining() < BINARY_RECORD_BYTES) {
+                    if (channel.position() == channel.size()) {
+                        throw new IOException("Truncated record at the end of " + file);
+                    }
+                    buffer.compact();
+                    continue;
+                }
+
+                while (buffer.remaining() >= BINARY_RECORD_BYTES) {
+                    var position = buffer.position();
+                    var txn = nextSlot();
+                    TransactionCodec.decode(buffer, position, txn);
+                    txn.timestamp = 0;
+                    buffer.position(position + BINARY_RECORD_BYTES);
+                    read++;
+                }
+                buffer.compact();
+            }
+            flushBatch();
+        } finally {
+            batchCount = 0;
+        }
+        return read;
+    }
+
+    private int parseCsvLine(int start, int end) throws IOException {
+        lineNumber++;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return 0;
+        }
+
+        var first = buffer.get(start);
+        if (lineNumber == 1 && first != '-' && (first < '0' || first > '9')) {
+            return 0;
+        }
+
+        // Every field is checked before a batch slot is taken, so a bad line leaves nothing behind.
+        var position = start;
+        var transactionId = parseInt(position, end);
+        position = nextField(position, end);
+        var accountId = parseInt(position, end);
+        position = nextField(position, end);
+        var amount = parseInt(position, end);
+        position = nextField(position, end);
+        var isDebit = parseBoolean(position, end);
+        position = fieldEnd(position, end);
+        var timestamp = 0L;
+        if (position < end) {
+            timestamp = parseNumber(position + 1, end);
+            if (fieldEnd(position + 1, end) != end) {
+                throw malformedLine();
+            }
+        }
+
+        var txn = nextSlot();
+        txn.transactionId = transactionId;
+        txn.accountId = accountId;
+        txn.amount = amount;
+        txn.isDebit = isDebit;
+        txn.timestamp = timestamp;
+        return 1;
+    }
+
+    private Transaction nextSlot() {
+        if (batchCount == batch.length) {
+            flushBatch();
+        }
+        return batch[batchCount++];
+    }
+
+    private void flushBatch() {
+        if (batchCount > 0) {
+            var fraudScores = engine.addTransactionsAndDetectFraud(batch, batchCount);
+            handler.onBatch(batch, fraudScores, batchCount);
+            batchCount = 0;
+        }
+    }
+
+    private int parseInt(int position, int end) throws IOException {
+        var value = parseNumber(position, end);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw malformedLine();
+        }
+        return (int) value;
+    }
+
+    // Digits beyond what a long holds are rejected rather than wrapped.
+    private long parseNumber(int position, int end) throws IOException {
+        var negative = position < end && buffer.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+
+        var fieldEnd = fieldEnd(position, end);
+        if (fieldEnd == position) {
+            throw malformedLine();
+        }
+
+        var value = 0L;
+        for (; position < fieldEnd; position++) {
+            var digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw malformedLine();
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean parseBoolean(int position, int end) throws IOException {
+        var fieldEnd = fieldEnd(position, end);
+        if (fieldEquals(position, fieldEnd, "true") || fieldEquals(position, fieldEnd, "1")) {
+            return true;
+        }
+        if (fieldEquals(position, fieldEnd, "false") || fieldEquals(position, fieldEnd, "0")) {
+            return false;
+        }
+        throw malformedLine();
+    }
+
+    private boolean fieldEquals(int position, int fieldEnd, String expected) {
+        if (fieldEnd - position != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (buffer.get(position + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int nextField(int position, int end) throws IOException {
+        var fieldEnd = fieldEnd(position, end);
+        if (fieldEnd == end) {
+            throw malformedLine();
+        }
+        return fieldEnd + 1;
+    }
+
+    private int fieldEnd(int position, int end) {
+        while (position < end && buffer.get(position) != ',') {
+            position++;
+        }
+        return position;
+    }
+
+    private IOException malformedLine() {
+        return new IOException("Malformed transaction on line " + lineNumber);
+    }
+}
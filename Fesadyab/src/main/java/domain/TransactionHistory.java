@@ -0,0 +1,68 @@
+package domain;
+
+// View of accepted transactions, addressed by position in arrival order. Position 0 is the
+// oldest transaction still retained.
+interface TransactionHistory {
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void add(Transaction txn);
+
+    // Drops the oldest transaction; used by windowed engines.
+    void removeFirst();
+
+    int transactionId(int index);
+
+    int accountId(int index);
+
+    int amount(int index);
+
+    boolean isDebit(int index);
+
+    long timestamp(int index);
+
+    // Full scans over the retained transactions. Histories that keep plain int columns
+    // override these with the vectorized ScanKernel.
+    default long sumAbove(int threshold) {
+        var sum = 0L;
+        for (int i = 0; i < size(); i++) {
+            if (amount(i) > threshold) {
+                sum += amount(i);
+            }
+        }
+        return sum;
+    }
+
+    default int countAbove(int threshold) {
+        var count = 0;
+        for (int i = 0; i < size(); i++) {
+            if (amount(i) > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    default long sumForAccount(int accountId) {
+        var sum = 0L;
+        for (int i = 0; i < size(); i++) {
+            if (accountId(i) == accountId) {
+                sum += amount(i);
+            }
+        }
+        return sum;
+    }
+
+    default int countForAccount(int accountId) {
+        var count = 0;
+        for (int i = 0; i < size(); i++) {
+            if (accountId(i) == accountId) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
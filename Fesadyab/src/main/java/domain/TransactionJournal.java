@@ -0,0 +1,226 @@
+package domain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Append-only log of accepted transactions in fixed-size little-endian records, spread over
+// memory-mapped segment files. Replaying it into an empty engine rebuilds the engine's state
+// with a sequential read of the mapped segments.
+//
+// Record layout: committed marker (1 byte), the 13-byte TransactionCodec record, timestamp
+// (8 bytes). The marker is written last, and the first record without it ends the journal.
+//
+// Record positions are computed from the segment size, so it is fixed when the journal is
+// created and stored in a header file next to the segments: magic, version and records per
+// segment, as little-endian ints. Opening the journal with another segment size fails.
+public class TransactionJournal implements AutoCloseable {
+    static final int RECORD_BYTES = 1 + TransactionCodec.RECORD_BYTES + 8;
+    private static final int TIMESTAMP_OFFSET = 1 + TransactionCodec.RECORD_BYTES;
+    private static final byte COMMITTED = 1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String HEADER_FILE = "journal.header";
+    private static final int HEADER_MAGIC = 0x46534A4E;
+    private static final int HEADER_VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    public static final int DEFAULT_SYNC_EVERY_RECORDS = 1024;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long syncEveryBytes;
+    private final List<Path> segments = new ArrayList<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long recordCount;
+    private int segmentPosition;
+    private int syncedPosition;
+
+    private TransactionJournal(Path directory, int segmentRecords, int syncEveryRecords) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        syncEveryBytes = (long) syncEveryRecords * RECORD_BYTES;
+    }
+
+    public static TransactionJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_RECORDS, DEFAULT_SYNC_EVERY_RECORDS);
+    }
+
+    // syncEveryRecords = 0 leaves syncing to flush() and close().
+    public static TransactionJournal open(Path directory, int segmentRecords, int syncEveryRecords)
+            throws IOException {
+        if (segmentRecords <= 0 || (long) segmentRecords * RECORD_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentRecords);
+        }
+        if (syncEveryRecords < 0) {
+            throw new IllegalArgumentException("Invalid sync interval: " + syncEveryRecords);
+        }
+
+        Files.createDirectories(directory);
+        var journal = new TransactionJournal(directory, segmentRecords, syncEveryRecords);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(TransactionJournal::isSegment).sorted().forEach(journal.segments::add);
+        }
+
+        journal.checkHeader();
+        if (journal.segments.isEmpty()) {
+            journal.openSegment(0);
+        } else {
+            journal.recordCount = (long) (journal.segments.size() - 1) * segmentRecords;
+            journal.mapSegment(journal.segments.getLast());
+            while (journal.segmentPosition < journal.buffer.capacity()
+                    && journal.buffer.get(journal.segmentPosition) == COMMITTED) {
+                journal.segmentPosition += RECORD_BYTES;
+                journal.recordCount++;
+            }
+            journal.syncedPosition = journal.segmentPosition;
+        }
+        return journal;
+    }
+
+    public long recordCount() {
+        return recordCount;
+    }
+
+    public void append(Transaction txn) {
+        if (segmentPosition == buffer.capacity()) {
+            rollSegment();
+        }
+
+        var position = segmentPosition;
+        TransactionCodec.encode(txn, buffer, position + 1);
+        buffer.putLong(position + TIMESTAMP_OFFSET, txn.timestamp);
+        buffer.put(position, COMMITTED);
+        segmentPosition += RECORD_BYTES;
+        recordCount++;
+
+        if (syncEveryBytes > 0 && segmentPosition - syncedPosition >= syncEveryBytes) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (segmentPosition > syncedPosition) {
+            buffer.force(syncedPosition, segmentPosition - syncedPosition);
+            syncedPosition = segmentPosition;
+        }
+    }
+
+    // Feeds every journaled transaction, in order, to the engine. Returns the number replayed.
+    public long replay(TransactionEngine engine) throws IOException {
+        return replay(engine, 0);
+    }
+
+    // Feeds the journaled transactions from record fromRecord onwards to the engine.
+    long replay(TransactionEngine engine, long fromRecord) throws IOException {
+        var txn = new Transaction();
+        var replayed = 0L;
+
+        for (int s = (int) (fromRecord / segmentRecords); s < segments.size(); s++) {
+            var start = s == fromRecord / segmentRecords ? (int) (fromRecord % segmentRecords) * RECORD_BYTES : 0;
+            try (var segmentChannel = FileChannel.open(segments.get(s), StandardOpenOption.READ)) {
+                var records = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size())
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                for (int position = start; position + RECORD_BYTES <= records.capacity()
+                        && records.get(position) == COMMITTED; position += RECORD_BYTES) {
+                    TransactionCodec.decode(records, position + 1, txn);
+                    txn.timestamp = records.getLong(position + TIMESTAMP_OFFSET);
+                    engine.addTransactionAndDetectFraud(txn);
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    // Writes the header of a new journal, or checks an existing one against segmentRecords.
+    // Journals from before the header existed get one, with the size of their segment files.
+    private void checkHeader() throws IOException {
+        var header = directory.resolve(HEADER_FILE);
+        if (Files.exists(header)) {
+            var bytes = ByteBuffer.wrap(Files.readAllBytes(header)).order(ByteOrder.LITTLE_ENDIAN);
+            if (bytes.capacity() != HEADER_BYTES || bytes.getInt(0) != HEADER_MAGIC || bytes.getInt(4) != HEADER_VERSION) {
+                throw new IOException("Not a transaction journal header: " + header);
+            }
+            checkSegmentRecords(bytes.getInt(8));
+        } else {
+            if (!segments.isEmpty()) {
+                var segmentBytes = Files.size(segments.getFirst());
+                checkSegmentRecords(segmentBytes % RECORD_BYTES == 0 ? segmentBytes / RECORD_BYTES : -1);
+            }
+            writeHeader(header);
+        }
+
+        for (var segment : segments) {
+            if (Files.size(segment) != (long) segmentRecords * RECORD_BYTES) {
+                throw new IOException("Journal segment has the wrong size: " + segment);
+            }
+        }
+    }
+
+    private void checkSegmentRecords(long stored) throws IOException {
+        if (stored != segmentRecords) {
+            throw new IOException("Journal " + directory + " has " + stored + " records per segment, not "
+                    + segmentRecords);
+        }
+    }
+
+    private void writeHeader(Path header) throws IOException {
+        var bytes = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(HEADER_MAGIC).putInt(HEADER_VERSION).putInt(segmentRecords).flip();
+        try (var headerChannel = FileChannel.open(header, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                headerChannel.write(bytes);
+            }
+            headerChannel.force(true);
+        }
+    }
+
+    private void rollSegment() {
+        try {
+            flush();
+            channel.close();
+            openSegment(segments.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        var segment = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        segments.add(segment);
+        mapSegment(segment);
+    }
+
+    private void mapSegment(Path segment) throws IOException {
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_BYTES);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        segmentPosition = 0;
+        syncedPosition = 0;
+    }
+
+    private static boolean isSegment(Path path) {
+        var name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+}
@@ -0,0 +1,229 @@
+package domain;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Staged ingestion in front of a TransactionEngine, in the style of the LMAX Disruptor.
+// Producers claim a sequence, fill the pre-allocated slot and mark it published; the dedup,
+// scoring and publishing stages each run on their own thread and follow the previous stage's
+// sequence instead of handing events through queues. The dedup stage is the only writer of
+// the engine's id index and the scoring stage the only writer of the rest of its state, so
+// no locks are taken on the hot path. The engine must not be used directly while the
+// pipeline is running.
+//
+// A stage that throws on an event records the exception and moves on, so producers and close()
+// never wait on a dead stage. Scoring failures reach the handler's onScoringFailure, and
+// close() rethrows the first failure of any stage, including the handler's own. An Error
+// fails the pipeline instead: the stages drain the ring without processing it, publish()
+// throws, and close() reports the Error as its cause.
+public class TransactionPipeline implements AutoCloseable {
+    private static final int SPINS_BEFORE_PARK = 1000;
+
+    private final TransactionEngine engine;
+    private final FraudScoreHandler handler;
+    private final TransactionEvent[] slots;
+    private final int mask;
+    private final int indexShift;
+
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicIntegerArray publishedLaps;
+    private final Stage dedupStage;
+    private final Stage scoringStage;
+    private final Stage publishingStage;
+    private final Thread[] threads;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean running;
+    private volatile boolean failed;
+
+    public TransactionPipeline(TransactionEngine engine, int ringSize, FraudScoreHandler handler) {
+        if (ringSize < 2 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two");
+        }
+
+        // Window eviction removes ids from the scoring stage, which would race the dedup stage.
+        if (engine.window != null) {
+            throw new IllegalArgumentException("Windowed engines cannot be used in a pipeline");
+        }
+
+        this.engine = engine;
+        this.handler = handler;
+        slots = new TransactionEvent[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new TransactionEvent();
+        }
+        mask = ringSize - 1;
+        indexShift = Integer.numberOfTrailingZeros(ringSize);
+        publishedLaps = new AtomicIntegerArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            publishedLaps.set(i, -1);
+        }
+
+        dedupStage = new Stage() {
+            @Override
+            long available(long next) {
+                var last = next - 1;
+                while (last - next < mask && isPublished(last + 1)) {
+                    last++;
+                }
+                return last;
+            }
+
+            // Writes only the dedup latency and the duplicate count, which the scoring stage
+            // never touches, so sharing the engine's metrics needs no locking.
+            @Override
+            void process(TransactionEvent event) {
+                var metrics = engine.metrics;
+                var start = metrics == null ? 0 : System.nanoTime();
+                event.duplicate = !engine.transactionIds.add(event.transaction.transactionId);
+                if (metrics != null) {
+                    if (event.duplicate) {
+                        metrics.recordDuplicate(start);
+                    } else {
+                        metrics.record(EngineMetrics.Stage.DEDUP, start);
+                    }
+                }
+            }
+        };
+        scoringStage = new Stage() {
+            @Override
+            long available(long next) {
+                return dedupStage.sequence.get();
+            }
+
+            @Override
+            void process(TransactionEvent event) {
+                event.failure = null;
+                event.fraudScore = 0;
+                if (!event.duplicate) {
+                    try {
+                        event.fraudScore = engine.scoreAndRecord(event.transaction);
+                    } catch (RuntimeException e) {
+                        event.failure = e;
+                        throw e;
+                    }
+                }
+            }
+        };
+        publishingStage = new Stage() {
+            @Override
+            long available(long next) {
+                return scoringStage.sequence.get();
+            }
+
+            @Override
+            void process(TransactionEvent event) {
+                if (event.failure != null) {
+                    handler.onScoringFailure(event.transaction.transactionId, event.failure);
+                } else {
+                    handler.onFraudScore(event.transaction.transactionId, event.fraudScore, event.duplicate);
+                }
+            }
+        };
+        threads = new Thread[] {
+                new Thread(dedupStage, "transaction-pipeline-dedup"),
+                new Thread(scoringStage, "transaction-pipeline-scoring"),
+                new Thread(publishingStage, "transaction-pipeline-publishing")
+        };
+    }
+
+    public void start() {
+        running = true;
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // Safe to call from several producer threads. Blocks while the ring is full.
+    public void publish(int transactionId, int accountId, int amount, boolean isDebit) {
+        if (failed) {
+            throw new IllegalStateException("Transaction pipeline failed", failure.get());
+        }
+
+        var sequence = cursor.getAndIncrement();
+        var wrapPoint = sequence - slots.length;
+        var idle = 0;
+        while (wrapPoint > publishingStage.sequence.get()) {
+            idle = backOff(idle);
+        }
+
+        var txn = slots[(int) sequence & mask].transaction;
+        txn.transactionId = transactionId;
+        txn.accountId = accountId;
+        txn.amount = amount;
+        txn.isDebit = isDebit;
+        publishedLaps.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    // Drains every published transaction and stops the stage threads. Call it after all
+    // producers have returned from publish(). Throws IllegalStateException with the Error that
+    // failed the pipeline or else the first exception a stage caught, if any.
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        var firstFailure = failure.get();
+        if (firstFailure != null) {
+            throw new IllegalStateException("Transaction pipeline stage failed", firstFailure);
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return publishedLaps.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    private static int backOff(int idle) {
+        if (idle < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(1_000);
+        }
+        return idle + 1;
+    }
+
+    private abstract class Stage implements Runnable {
+        final AtomicLong sequence = new AtomicLong(-1);
+
+        // Highest sequence this stage may process, given the next one it needs.
+        abstract long available(long next);
+
+        abstract void process(TransactionEvent event);
+
+        @Override
+        public void run() {
+            var next = sequence.get() + 1;
+            var idle = 0;
+            while (true) {
+                var available = available(next);
+                if (available < next) {
+                    if (!running && next >= cursor.get()) {
+                        return;
+                    }
+                    idle = backOff(idle);
+                    continue;
+                }
+
+                for (; next <= available; next++) {
+                    if (failed) {
+                        continue;
+                    }
+                    try {
+                        process(slots[(int) next & mask]);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } catch (Throwable t) {
+                        failure.set(t);
+                        failed = true;
+                    }
+                }
+                sequence.lazySet(available);
+                idle = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package domain;
+
+// Bounds how much history a TransactionEngine retains: either the last N transactions, or the
+// transactions whose timestamp lies within a span of the newest timestamp seen. Eviction runs
+// in arrival order.
+public class TransactionWindow {
+    enum Kind {
+        COUNT,
+        EVENT_TIME
+    }
+
+    final Kind kind;
+    final long limit;
+
+    private TransactionWindow(Kind kind, long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Window limit must be positive");
+        }
+
+        this.kind = kind;
+        this.limit = limit;
+    }
+
+    public static TransactionWindow ofCount(int maxTransactions) {
+        return new TransactionWindow(Kind.COUNT, maxTransactions);
+    }
+
+    // The span is in the same unit as Transaction.timestamp.
+    public static TransactionWindow ofEventTime(long span) {
+        return new TransactionWindow(Kind.EVENT_TIME, span);
+    }
+
+    boolean isOldestExpired(TransactionHistory history, long latestTimestamp) {
+        if (history.isEmpty()) {
+            return false;
+        }
+
+        return switch (kind) {
+            case COUNT -> history.size() > limit;
+            case EVENT_TIME -> latestTimestamp - history.timestamp(0) >= limit;
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package domain;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// ScanKernel on the incubating Vector API, at the platform's preferred vector width. Each step
+// compares a full vector of amounts or account ids, zeroes the lanes that don't match and
+// widens the rest into two long vectors, so sums can't overflow; the tail is done by the
+// scalar kernel. Only loaded through ScanKernels, when jdk.incubator.vector is present.
+class VectorScanKernel implements ScanKernel {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final ScalarScanKernel TAIL = new ScalarScanKernel();
+
+    @Override
+    public long sumAbove(int[] amounts, int from, int to, int threshold) {
+        var sums = LongVector.zero(LONGS);
+        var i = from;
+        for (var bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            var values = IntVector.fromArray(INTS, amounts, i);
+            sums = addWidened(sums, values, values.compare(VectorOperators.GT, threshold));
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + TAIL.sumAbove(amounts, i, to, threshold);
+    }
+
+    @Override
+    public int countAbove(int[] amounts, int from, int to, int threshold) {
+        var count = 0;
+        var i = from;
+        for (var bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            count += IntVector.fromArray(INTS, amounts, i).compare(VectorOperators.GT, threshold).trueCount();
+        }
+        return count + TAIL.countAbove(amounts, i, to, threshold);
+    }
+
+    @Override
+    public long sumForAccount(int[] accountIds, int[] amounts, int from, int to, int accountId) {
+        var sums = LongVector.zero(LONGS);
+        var i = from;
+        for (var bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            var matches = IntVector.fromArray(INTS, accountIds, i).compare(VectorOperators.EQ, accountId);
+            if (matches.anyTrue()) {
+                sums = addWidened(sums, IntVector.fromArray(INTS, amounts, i), matches);
+            }
+        }
+        return sums.reduceLanes(VectorOperators.ADD) + TAIL.sumForAccount(accountIds, amounts, i, to, accountId);
+    }
+
+    @Override
+    public int countForAccount(int[] accountIds, int from, int to, int accountId) {
+        var count = 0;
+        var i = from;
+        for (var bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            count += IntVector.fromArray(INTS, accountIds, i).compare(VectorOperators.EQ, accountId).trueCount();
+        }
+        return count + TAIL.countForAccount(accountIds, i, to, accountId);
+    }
+
+    private static LongVector addWidened(LongVector sums, IntVector values, VectorMask<Integer> mask) {
+        var selected = IntVector.zero(INTS).blend(values, mask);
+        return sums.add((LongVector) selected.convertShape(VectorOperators.I2L, LONGS, 0))
+                .add((LongVector) selected.convertShape(VectorOperators.I2L, LONGS, 1));
+    }
+}
@@ -0,0 +1,249 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+// Deterministic synthetic transaction stream for load, scale and soak tests. Everything is
+// drawn from one SplittableRandom, so the same seed and settings give the same stream. The
+// stream mixes:
+//
+// - normal transactions: Zipfian account popularity, a debit ratio and uniform or log-normal
+//   amounts;
+// - spikes: debits of spikeMultiplier times a normal amount;
+// - progressions: runs of amounts above the pattern threshold growing by a fixed step, the
+//   shape the engine's threshold pattern check looks for;
+// - duplicates: ids repeated from the last DUPLICATE_WINDOW transactions.
+//
+// Ids otherwise count up from 0 and wrap after 2^32 transactions, so streams of billions
+// should go to windowed engines. Configure the generator before drawing from it.
+public class WorkloadGenerator {
+    public enum Kind {
+        NORMAL,
+        SPIKE,
+        PROGRESSION,
+        DUPLICATE
+    }
+
+    static final int DUPLICATE_WINDOW = 1024;
+
+    private final SplittableRandom random;
+    private final int[] recentIds = new int[DUPLICATE_WINDOW];
+    private ZipfianAccounts accounts;
+    private int accountCount = 10_000;
+    private double zipfExponent = 0.99;
+    private double debitRatio = 0.5;
+    private int maxUniformAmount = 1000;
+    private double logNormalMedian;
+    private double logNormalSigma;
+    private double spikeRate;
+    private int spikeMultiplier = 10;
+    private double progressionRate;
+    private int progressionLength = 8;
+    private int progressionThreshold = 1000;
+    private double duplicateRate;
+
+    private int nextId;
+    private long generated;
+    private int progressionRemaining;
+    private int progressionAmount;
+    private int progressionStep;
+    private Kind lastKind = Kind.NORMAL;
+
+    public WorkloadGenerator(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    public WorkloadGenerator accounts(int accountCount, double zipfExponent) {
+        this.accountCount = accountCount;
+        this.zipfExponent = zipfExponent;
+        accounts = null;
+        return this;
+    }
+
+    public WorkloadGenerator debitRatio(double debitRatio) {
+        this.debitRatio = probability(debitRatio);
+        return this;
+    }
+
+    // Normal amounts uniform in [0, maxAmount).
+    public WorkloadGenerator uniformAmounts(int maxAmount) {
+        if (maxAmount <= 0) {
+            throw new IllegalArgumentException("Invalid maximum amount: " + maxAmount);
+        }
+        maxUniformAmount = maxAmount;
+        logNormalMedian = 0;
+        return this;
+    }
+
+    // Normal amounts log-normal around the median; sigma is the spread of the log.
+    public WorkloadGenerator logNormalAmounts(double median, double sigma) {
+        if (!(median > 0) || sigma < 0) {
+            throw new IllegalArgumentException("Invalid log-normal amounts: " + median + ", " + sigma);
+        }
+        logNormalMedian = median;
+        logNormalSigma = sigma;
+        return this;
+    }
+
+    public WorkloadGenerator spikes(double rate, int multiplier) {
+        spikeRate = probability(rate);
+        spikeMultiplier = multiplier;
+        return this;
+    }
+
+    public WorkloadGenerator progressions(double rate, int length, int threshold) {
+        if (length < 2) {
+            throw new IllegalArgumentException("A progression needs at least two amounts: " + length);
+        }
+        progressionRate = probability(rate);
+        progressionLength = length;
+        progressionThreshold = threshold;
+        return this;
+    }
+
+    public WorkloadGenerator duplicates(double rate) {
+        duplicateRate = probability(rate);
+        return this;
+    }
+
+    // What the last transaction drawn was generated as.
+    public Kind lastKind() {
+        return lastKind;
+    }
+
+    public long generated() {
+        return generated;
+    }
+
+    // Fills and returns txn, so a stream can reuse one object.
+    public Transaction next(Transaction txn) {
+        if (accounts == null) {
+            accounts = new ZipfianAccounts(accountCount, zipfExponent, random);
+        }
+
+        txn.transactionId = nextId();
+        txn.accountId = accounts.next();
+        txn.timestamp = 0;
+        if (lastKind == Kind.DUPLICATE) {
+            txn.amount = normalAmount();
+            txn.isDebit = random.nextDouble() < debitRatio;
+        } else if (progressionRemaining > 0 || random.nextDouble() < progressionRate) {
+            lastKind = Kind.PROGRESSION;
+            txn.amount = nextProgressionAmount();
+            txn.isDebit = random.nextDouble() < debitRatio;
+        } else if (random.nextDouble() < spikeRate) {
+            lastKind = Kind.SPIKE;
+            txn.amount = (int) Math.min(Integer.MAX_VALUE, (long) Math.max(1, normalAmount()) * spikeMultiplier);
+            txn.isDebit = true;
+        } else {
+            lastKind = Kind.NORMAL;
+            txn.amount = normalAmount();
+            txn.isDebit = random.nextDouble() < debitRatio;
+        }
+
+        generated++;
+        return txn;
+    }
+
+    // Fills transactions[0, count), creating missing objects once.
+    public void fill(Transaction[] transactions, int count) {
+        for (int i = 0; i < count; i++) {
+            if (transactions[i] == null) {
+                transactions[i] = new Transaction();
+            }
+            next(transactions[i]);
+        }
+    }
+
+    // Scores the next events transactions in batches through addTransactionsAndDetectFraud.
+    // Returns how many were flagged.
+    public long feed(TransactionEngine engine, long events, int batchSize) {
+        var batch = new Transaction[batchSize];
+        var flagged = 0L;
+        for (long remaining = events; remaining > 0; ) {
+            var count = (int) Math.min(batchSize, remaining);
+            fill(batch, count);
+            for (int fraudScore : engine.addTransactionsAndDetectFraud(batch, count)) {
+                if (fraudScore != 0) {
+                    flagged++;
+                }
+            }
+            remaining -= count;
+        }
+        return flagged;
+    }
+
+    // Appends the next events transactions to the file as fixed-width TransactionCodec records,
+    // the format TransactionFeedReader.readBinary reads.
+    public void writeBinary(Path file, long events) throws IOException {
+        var buffer = ByteBuffer.allocateDirect(8192 * TransactionCodec.RECORD_BYTES);
+        var txn = new Transaction();
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            for (long i = 0; i < events; i++) {
+                if (buffer.remaining() < TransactionCodec.RECORD_BYTES) {
+                    drain(channel, buffer);
+                }
+                TransactionCodec.encode(next(txn), buffer, buffer.position());
+                buffer.position(buffer.position() + TransactionCodec.RECORD_BYTES);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    // recentIds[generated % DUPLICATE_WINDOW] gets every id, duplicates included, so a
+    // duplicate always repeats one of the last DUPLICATE_WINDOW transactions.
+    private int nextId() {
+        int id;
+        if (generated > 0 && random.nextDouble() < duplicateRate) {
+            lastKind = Kind.DUPLICATE;
+            var window = (int) Math.min(generated, DUPLICATE_WINDOW);
+            id = recentIds[(int) ((generated - 1 - random.nextInt(window)) % DUPLICATE_WINDOW)];
+        } else {
+            lastKind = Kind.NORMAL;
+            id = nextId++;
+        }
+        recentIds[(int) (generated % DUPLICATE_WINDOW)] = id;
+        return id;
+    }
+
+    private int nextProgressionAmount() {
+        if (progressionRemaining == 0) {
+            progressionRemaining = progressionLength;
+            progressionStep = 1 + random.nextInt(100);
+            progressionAmount = progressionThreshold + 1 + random.nextInt(1000);
+        }
+
+        var amount = progressionAmount;
+        progressionAmount += progressionStep;
+        progressionRemaining--;
+        return amount;
+    }
+
+    private int normalAmount() {
+        if (logNormalMedian == 0) {
+            return random.nextInt(maxUniformAmount);
+        }
+        var amount = logNormalMedian * Math.exp(logNormalSigma * random.nextGaussian());
+        return (int) Math.min(Integer.MAX_VALUE, amount);
+    }
+
+    private static double probability(double value) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException("Not a probability: " + value);
+        }
+        return value;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,39 @@
+package domain;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+// Seeded sampler of account ids 0..accounts-1 where id k has weight 1 / (k + 1)^exponent.
+// An exponent of 0 gives a uniform distribution.
+class ZipfianAccounts {
+    private final double[] cumulative;
+    private final RandomGenerator random;
+
+    ZipfianAccounts(int accounts, double exponent, long seed) {
+        this(accounts, exponent, new Random(seed));
+    }
+
+    // Draws from the given generator, so a caller can share one seeded stream.
+    ZipfianAccounts(int accounts, double exponent, RandomGenerator random) {
+        if (accounts <= 0) {
+            throw new IllegalArgumentException("Invalid account count: " + accounts);
+        }
+
+        cumulative = new double[accounts];
+        var total = 0.0;
+        for (int k = 0; k < accounts; k++) {
+            total += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < accounts; k++) {
+            cumulative[k] /= total;
+        }
+        this.random = random;
+    }
+
+    int next() {
+        var index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,87 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccountAggregatesTest {
+    private AccountAggregates accountAggregates;
+
+    @BeforeEach
+    void setUp() {
+        accountAggregates = new AccountAggregates();
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountAggregates = null;
+    }
+
+    @Test
+    void AverageShouldReturnZeroForUnknownAccount() {
+        assertEquals(0, accountAggregates.average(7));
+        assertEquals(0, accountAggregates.count(7));
+    }
+
+    @Test
+    void AddShouldSplitDebitAndCreditTotals() {
+        accountAggregates.add(1, 10, true);
+        accountAggregates.add(1, 30, false);
+        accountAggregates.add(1, 5, true);
+
+        assertEquals(45, accountAggregates.sum(1));
+        assertEquals(3, accountAggregates.count(1));
+        assertEquals(15, accountAggregates.debitSum(1));
+        assertEquals(2, accountAggregates.debitCount(1));
+        assertEquals(30, accountAggregates.creditSum(1));
+        assertEquals(1, accountAggregates.creditCount(1));
+        assertEquals(15, accountAggregates.average(1));
+    }
+
+    @Test
+    void AddShouldKeepAccountsSeparateWhenTableGrows() {
+        for (int accountId = 0; accountId < 1000; accountId++) {
+            accountAggregates.add(accountId, accountId * 2, true);
+            accountAggregates.add(accountId, 0, false);
+        }
+
+        assertEquals(1000, accountAggregates.accountCount());
+        for (int accountId = 0; accountId < 1000; accountId++) {
+            assertEquals(accountId, accountAggregates.average(accountId));
+        }
+    }
+
+    @Test
+    void AverageShouldNotOverflowForLargeTotals() {
+        accountAggregates.add(1, Integer.MAX_VALUE, true);
+        accountAggregates.add(1, Integer.MAX_VALUE, true);
+
+        assertEquals(Integer.MAX_VALUE, accountAggregates.average(1));
+    }
+
+    @Test
+    void RemoveShouldUndoAddAndDropEmptyAccounts() {
+        accountAggregates.add(1, 10, true);
+        accountAggregates.add(2, 20, false);
+        accountAggregates.add(1, 30, false);
+        accountAggregates.add(3, 40, true);
+
+        accountAggregates.remove(1, 10, true);
+        assertEquals(30, accountAggregates.average(1));
+        assertEquals(0, accountAggregates.debitCount(1));
+
+        accountAggregates.remove(1, 30, false);
+        assertEquals(0, accountAggregates.count(1));
+        assertEquals(2, accountAggregates.accountCount());
+        assertEquals(20, accountAggregates.average(2));
+        assertEquals(40, accountAggregates.average(3));
+    }
+
+    @Test
+    void RemoveShouldFailForUnknownAccount() {
+        assertThrows(IllegalStateException.class, () -> accountAggregates.remove(1, 10, true));
+    }
+}
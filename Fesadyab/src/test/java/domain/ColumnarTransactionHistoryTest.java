@@ -0,0 +1,72 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarTransactionHistoryTest {
+    private ColumnarTransactionHistory transactionHistory;
+
+    @BeforeEach
+    void setUp() {
+        transactionHistory = new ColumnarTransactionHistory(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionHistory = null;
+    }
+
+    @Test
+    void NewHistoryShouldBeEmpty() {
+        assertTrue(transactionHistory.isEmpty());
+        assertEquals(0, transactionHistory.size());
+    }
+
+    @Test
+    void AddShouldKeepEveryColumnInArrivalOrder() {
+        for (int i = 0; i < 1000; i++) {
+            transactionHistory.add(Transactions.of(i, i % 7, -i, i % 3 == 0));
+        }
+
+        assertEquals(1000, transactionHistory.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, transactionHistory.transactionId(i));
+            assertEquals(i % 7, transactionHistory.accountId(i));
+            assertEquals(-i, transactionHistory.amount(i));
+            assertEquals(i % 3 == 0, transactionHistory.isDebit(i));
+        }
+    }
+
+    @Test
+    void RemoveFirstShouldKeepRetainedTransactionsAcrossCompaction() {
+        for (int i = 0; i < 5000; i++) {
+            Transaction transaction = Transactions.of(i, i % 7, -i, i % 3 == 0);
+            transaction.setTimestamp(i % 2 == 0 ? 0 : 1000L + i);
+            transactionHistory.add(transaction);
+            if (transactionHistory.size() > 100) {
+                transactionHistory.removeFirst();
+            }
+        }
+
+        assertEquals(100, transactionHistory.size());
+        assertTrue(transactionHistory.transactionIds.length < 1000);
+        for (int index = 0; index < 100; index++) {
+            int i = 4900 + index;
+            assertEquals(i, transactionHistory.transactionId(index));
+            assertEquals(i % 7, transactionHistory.accountId(index));
+            assertEquals(-i, transactionHistory.amount(index));
+            assertEquals(i % 3 == 0, transactionHistory.isDebit(index));
+            assertEquals(i % 2 == 0 ? 0 : 1000L + i, transactionHistory.timestamp(index));
+        }
+    }
+
+    @Test
+    void RemoveFirstShouldFailWhenEmpty() {
+        assertThrows(IllegalStateException.class, () -> transactionHistory.removeFirst());
+    }
+}
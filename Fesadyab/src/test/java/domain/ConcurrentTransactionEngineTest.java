@@ -0,0 +1,99 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConcurrentTransactionEngineTest {
+    private static final int THREADS = 8;
+    private static final int TRANSACTIONS = 20000;
+    private static final int ACCOUNTS = 37;
+
+    private static int AccountOf(int transactionId) {
+        return transactionId % ACCOUNTS;
+    }
+
+    private static int AmountOf(int transactionId) {
+        return (transactionId * 31) % 1500;
+    }
+
+    @Test
+    void ConstructorShouldRejectStripeCountThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentTransactionEngine(3));
+    }
+
+    @Test
+    void SingleThreadedIngestionShouldMatchTransactionEngine() {
+        Random random = new Random(7);
+        TransactionEngine transactionEngine = new TransactionEngine();
+        ConcurrentTransactionEngine concurrentEngine = new ConcurrentTransactionEngine(4);
+
+        for (int i = 0; i < 5000; i++) {
+            Transaction transaction = Transactions.of(random.nextInt(4000), random.nextInt(20),
+                    random.nextInt(5) == 0 ? 1001 + random.nextInt(3) : random.nextInt(300), random.nextBoolean());
+            assertEquals(transactionEngine.addTransactionAndDetectFraud(transaction),
+                    concurrentEngine.addTransactionAndDetectFraud(transaction));
+        }
+    }
+
+    // Every thread submits every id, in its own order. Each id must be accepted exactly once and
+    // its amount must land in its account exactly once.
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 64})
+    void ConcurrentIngestionShouldNotLoseUpdatesOrAcceptDuplicates(int stripes) throws Exception {
+        ConcurrentTransactionEngine concurrentEngine = new ConcurrentTransactionEngine(stripes);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                List<Integer> ids = new ArrayList<>();
+                for (int id = 0; id < TRANSACTIONS; id++) {
+                    ids.add(id);
+                }
+                Collections.shuffle(ids, new Random(t));
+
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int id : ids) {
+                        concurrentEngine.addTransactionAndDetectFraud(
+                                Transactions.of(id, AccountOf(id), AmountOf(id), id % 2 == 0));
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long[] expectedCounts = new long[ACCOUNTS];
+        long[] expectedSums = new long[ACCOUNTS];
+        for (int id = 0; id < TRANSACTIONS; id++) {
+            expectedCounts[AccountOf(id)]++;
+            expectedSums[AccountOf(id)] += AmountOf(id);
+        }
+        for (int accountId = 0; accountId < ACCOUNTS; accountId++) {
+            assertEquals(expectedCounts[accountId], concurrentEngine.getTransactionCountByAccount(accountId));
+            assertEquals((int) (expectedSums[accountId] / expectedCounts[accountId]),
+                    concurrentEngine.getAverageTransactionAmountByAccount(accountId));
+        }
+    }
+}
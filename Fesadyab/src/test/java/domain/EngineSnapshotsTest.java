@@ -0,0 +1,267 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EngineSnapshotsTest {
+    @TempDir
+    Path directory;
+
+    private static void AddRandomTransactions(TransactionEngine transactionEngine, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            transactionEngine.addTransactionAndDetectFraud(Transactions.of(random.nextInt(5000), random.nextInt(30),
+                    random.nextInt(5) == 0 ? 1001 + random.nextInt(2) : random.nextInt(400), random.nextBoolean()));
+        }
+    }
+
+    private static void AssertSameDerivedState(TransactionEngine expected, TransactionEngine actual) {
+        assertEquals(expected.transactionIds.size(), actual.transactionIds.size());
+        expected.transactionIds.forEach(id -> assertEquals(false, actual.transactionIds.add(id)));
+        assertEquals(expected.thresholdPattern.score(), actual.thresholdPattern.score());
+        assertEquals(expected.thresholdPattern.previousAmount, actual.thresholdPattern.previousAmount);
+        for (int accountId = 0; accountId < 30; accountId++) {
+            assertEquals(expected.accountAggregates.sum(accountId), actual.accountAggregates.sum(accountId));
+            assertEquals(expected.accountAggregates.count(accountId), actual.accountAggregates.count(accountId));
+            assertEquals(expected.accountAggregates.debitSum(accountId), actual.accountAggregates.debitSum(accountId));
+            assertEquals(expected.accountAggregates.debitCount(accountId),
+                    actual.accountAggregates.debitCount(accountId));
+        }
+    }
+
+    @Test
+    void RecoverShouldLoadSnapshotAndReplayJournalTail() throws IOException, ExecutionException, InterruptedException {
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        Random random = new Random(5);
+        TransactionEngine transactionEngine = new TransactionEngine();
+
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory, 500, 0);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            transactionEngine.attachJournal(journal);
+            for (int round = 0; round < 3; round++) {
+                AddRandomTransactions(transactionEngine, random, 1000);
+                snapshots.snapshot(transactionEngine).get();
+            }
+            AddRandomTransactions(transactionEngine, random, 300);
+        }
+
+        Path latestSnapshot;
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            List<Path> snapshotFiles = files.sorted().toList();
+            assertEquals(2, snapshotFiles.size());
+            latestSnapshot = snapshotFiles.getLast();
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory, 500, 0);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            TransactionEngine recoveredEngine = snapshots.recover(journal);
+
+            assertEquals(journal.recordCount() - EngineSnapshot.readFrom(latestSnapshot).journalPosition,
+                    recoveredEngine.transactionHistory.size());
+            AssertSameDerivedState(transactionEngine, recoveredEngine);
+
+            AddRandomTransactions(transactionEngine, new Random(6), 200);
+            AddRandomTransactions(recoveredEngine, new Random(6), 200);
+            AssertSameDerivedState(transactionEngine, recoveredEngine);
+        }
+    }
+
+    // Journals 3000 transactions with a snapshot after each 1000, then 300 more; returns the two
+    // retained snapshot files, oldest first.
+    private List<Path> WriteJournalWithSnapshots(TransactionEngine transactionEngine, Path journalDirectory,
+                                                 Path snapshotDirectory)
+            throws IOException, ExecutionException, InterruptedException {
+        Random random = new Random(5);
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory, 500, 0);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            transactionEngine.attachJournal(journal);
+            for (int round = 0; round < 3; round++) {
+                AddRandomTransactions(transactionEngine, random, 1000);
+                snapshots.snapshot(transactionEngine).get();
+            }
+            AddRandomTransactions(transactionEngine, random, 300);
+        }
+
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static void FlipByte(Path file, int position) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[position] ^= 0x40;
+        Files.write(file, bytes);
+    }
+
+    @Test
+    void RecoverShouldFallBackToOlderSnapshotWhenNewestIsCorrupt()
+            throws IOException, ExecutionException, InterruptedException {
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        TransactionEngine transactionEngine = new TransactionEngine();
+        List<Path> snapshotFiles = WriteJournalWithSnapshots(transactionEngine, journalDirectory, snapshotDirectory);
+        long olderPosition = EngineSnapshot.readFrom(snapshotFiles.getFirst()).journalPosition;
+        FlipByte(snapshotFiles.getLast(), (int) (Files.size(snapshotFiles.getLast()) / 2));
+        assertThrows(IOException.class, () -> EngineSnapshot.readFrom(snapshotFiles.getLast()));
+
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory, 500, 0);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            TransactionEngine recoveredEngine = snapshots.recover(journal);
+
+            assertEquals(journal.recordCount() - olderPosition, recoveredEngine.transactionHistory.size());
+            AssertSameDerivedState(transactionEngine, recoveredEngine);
+        }
+    }
+
+    @Test
+    void RecoverShouldReplayWholeJournalWhenNoSnapshotIsUsable()
+            throws IOException, ExecutionException, InterruptedException {
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        TransactionEngine transactionEngine = new TransactionEngine();
+        List<Path> snapshotFiles = WriteJournalWithSnapshots(transactionEngine, journalDirectory, snapshotDirectory);
+        FlipByte(snapshotFiles.getLast(), 20);
+        Files.write(snapshotFiles.getFirst(), Arrays.copyOf(Files.readAllBytes(snapshotFiles.getFirst()), 30));
+
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory, 500, 0);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            TransactionEngine recoveredEngine = snapshots.recover(journal);
+
+            assertEquals(journal.recordCount(), recoveredEngine.transactionHistory.size());
+            AssertSameDerivedState(transactionEngine, recoveredEngine);
+        }
+    }
+
+    @Test
+    void RecoverWithoutSnapshotShouldReplayWholeJournal() throws IOException {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal"))) {
+            transactionEngine.attachJournal(journal);
+            AddRandomTransactions(transactionEngine, new Random(7), 500);
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(directory.resolve("journal"));
+             EngineSnapshots snapshots = new EngineSnapshots(directory.resolve("snapshots"))) {
+            TransactionEngine recoveredEngine = snapshots.recover(journal);
+            assertEquals(transactionEngine.transactionHistory.size(), recoveredEngine.transactionHistory.size());
+            AssertSameDerivedState(transactionEngine, recoveredEngine);
+        }
+    }
+
+    private TransactionEngine NewEngine(String mode) {
+        try {
+            return switch (mode) {
+                case "offheap" -> TransactionEngine.withOffHeapHistory(null);
+                case "tiered" -> TransactionEngine.withTieredAccounts(4, directory.resolve("spill"), null);
+                case "ewma" -> TransactionEngine.withEwmaBaselines(0.1);
+                default -> new TransactionEngine();
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The supplied engine's mode survives recovery; EWMA engines can't take a snapshot and are
+    // rebuilt from the whole journal instead.
+    @ParameterizedTest
+    @ValueSource(strings = {"offheap", "tiered", "ewma"})
+    void RecoverShouldKeepTheSuppliedEngineMode(String mode) throws Exception {
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        TransactionEngine transactionEngine = NewEngine(mode.equals("ewma") ? "ewma" : "default");
+        long snapshotPosition;
+        long journalPosition;
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory, 500, 0);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            transactionEngine.attachJournal(journal);
+            AddRandomTransactions(transactionEngine, new Random(9), 1500);
+            if (!mode.equals("ewma")) {
+                snapshots.snapshot(transactionEngine).get();
+            }
+            snapshotPosition = journal.recordCount();
+            AddRandomTransactions(transactionEngine, new Random(10), 300);
+            journalPosition = journal.recordCount();
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory, 500, 0);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory);
+             TransactionEngine recoveredEngine = snapshots.recover(journal, () -> NewEngine(mode))) {
+            TransactionEngine expectedMode = NewEngine(mode.equals("tiered") ? "default" : mode);
+            assertEquals(expectedMode.transactionHistory.getClass(), recoveredEngine.transactionHistory.getClass());
+            if (mode.equals("ewma")) {
+                assertEquals(transactionEngine.transactionIds.size(), recoveredEngine.transactionIds.size());
+                assertEquals(transactionEngine.thresholdPattern.score(), recoveredEngine.thresholdPattern.score());
+            } else {
+                assertEquals(journalPosition - snapshotPosition, recoveredEngine.transactionHistory.size());
+                AssertSameDerivedState(transactionEngine, recoveredEngine);
+            }
+            if (mode.equals("tiered")) {
+                TieredAccountAggregates tiered = (TieredAccountAggregates) recoveredEngine.accountAggregates;
+                assertTrue(tiered.hotAccountCount() <= 4);
+                assertTrue(tiered.coldAccountCount() > 0);
+            }
+
+            AddRandomTransactions(transactionEngine, new Random(11), 200);
+            AddRandomTransactions(recoveredEngine, new Random(11), 200);
+            assertEquals(transactionEngine.thresholdPattern.score(), recoveredEngine.thresholdPattern.score());
+        }
+    }
+
+    @Test
+    void RecoverShouldRestorePercentileSketches() throws IOException, ExecutionException, InterruptedException {
+        Path journalDirectory = directory.resolve("journal");
+        Path snapshotDirectory = directory.resolve("snapshots");
+        Random random = new Random(8);
+        TransactionEngine transactionEngine = new TransactionEngine();
+        PercentileAmountDetector detector = new PercentileAmountDetector(0.9);
+        transactionEngine.addFraudDetector(detector);
+
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            transactionEngine.attachJournal(journal);
+            AddRandomTransactions(transactionEngine, random, 2000);
+            snapshots.snapshot(transactionEngine).get();
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(journalDirectory);
+             EngineSnapshots snapshots = new EngineSnapshots(snapshotDirectory)) {
+            TransactionEngine recoveredEngine = snapshots.recover(journal);
+            PercentileAmountDetector recoveredDetector = null;
+            for (FraudDetectorChain.Entry entry : recoveredEngine.detectors.entries) {
+                if (entry.detector instanceof PercentileAmountDetector percentileDetector) {
+                    recoveredDetector = percentileDetector;
+                }
+            }
+
+            assertEquals(0.9, recoveredDetector.percentile);
+            assertEquals(detector.sketches.accountCount(), recoveredDetector.sketches.accountCount());
+            for (int accountId = 0; accountId < 30; accountId++) {
+                assertEquals(detector.sketches.quantile(accountId, 0.9),
+                        recoveredDetector.sketches.quantile(accountId, 0.9));
+            }
+        }
+    }
+
+    @Test
+    void SnapshotShouldRequireJournal() throws IOException {
+        try (EngineSnapshots snapshots = new EngineSnapshots(directory)) {
+            assertThrows(IllegalStateException.class, () -> snapshots.snapshot(new TransactionEngine()));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EwmaBaselinesTest {
+    @ParameterizedTest
+    @ValueSource(doubles = {0, -0.5, 1.5, Double.NaN})
+    void ConstructorShouldRejectAlphaOutsideUnitInterval(double alpha) {
+        assertThrows(IllegalArgumentException.class, () -> new EwmaBaselines(alpha));
+    }
+
+    @Test
+    void AddShouldUpdateExponentiallyWeightedMeanAndVariance() {
+        EwmaBaselines baselines = new EwmaBaselines(0.5);
+        baselines.add(1, 10);
+        assertEquals(10, baselines.mean(1));
+        assertEquals(0, baselines.variance(1));
+
+        baselines.add(1, 20);
+        assertEquals(15, baselines.mean(1));
+        assertEquals(25, baselines.variance(1));
+
+        baselines.add(1, 15);
+        assertEquals(15, baselines.mean(1));
+        assertEquals(12.5, baselines.variance(1));
+
+        assertEquals(0, baselines.baseline(2));
+        assertEquals(1, baselines.accountCount());
+    }
+
+    @Test
+    void EwmaEngineShouldFlagDebitsAboveTwiceBaselineWithoutHistory() {
+        TransactionEngine transactionEngine = TransactionEngine.withEwmaBaselines(0.5);
+
+        assertEquals(10, transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true)));
+        assertEquals(0, transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 20, true)));
+        assertEquals(0, transactionEngine.addTransactionAndDetectFraud(Transactions.of(3, 1, 30, true)));
+        assertEquals(0, transactionEngine.addTransactionAndDetectFraud(Transactions.of(3, 1, 300, true)));
+        assertEquals(6, transactionEngine.addTransactionAndDetectFraud(Transactions.of(4, 1, 50, true)));
+        assertEquals(0, transactionEngine.addTransactionAndDetectFraud(Transactions.of(5, 1, 50, false)));
+
+        assertEquals(0, transactionEngine.transactionHistory.size());
+        assertNull(transactionEngine.accountAggregates);
+    }
+
+    @Test
+    void EwmaEngineShouldKeepThresholdPattern() {
+        TransactionEngine transactionEngine = TransactionEngine.withEwmaBaselines(0.1);
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 5000, false));
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 5100, false));
+
+        assertEquals(100, transactionEngine.addTransactionAndDetectFraud(Transactions.of(3, 1, 10, false)));
+    }
+}
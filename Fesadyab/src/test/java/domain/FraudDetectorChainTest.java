@@ -0,0 +1,90 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class FraudDetectorChainTest {
+    private TransactionEngine transactionEngine;
+
+    @BeforeEach
+    void setUp() {
+        transactionEngine = new TransactionEngine();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionEngine = null;
+    }
+
+    private static class FixedScoreDetector implements FraudDetector {
+        final int fraudScore;
+        final int cost;
+        int evaluations;
+        int accepted;
+
+        FixedScoreDetector(int fraudScore, int cost) {
+            this.fraudScore = fraudScore;
+            this.cost = cost;
+        }
+
+        @Override
+        public int score(Transaction txn) {
+            evaluations++;
+            return fraudScore;
+        }
+
+        @Override
+        public void onAccepted(Transaction txn) {
+            accepted++;
+        }
+
+        @Override
+        public int relativeCost() {
+            return cost;
+        }
+    }
+
+    @Test
+    void CheaperDetectorShouldRunFirstAndShortCircuit() {
+        FixedScoreDetector expensiveDetector = new FixedScoreDetector(7, 10);
+        FixedScoreDetector cheapDetector = new FixedScoreDetector(3, 0);
+        transactionEngine.addFraudDetector(expensiveDetector);
+        transactionEngine.addFraudDetector(cheapDetector);
+
+        assertEquals(3, transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true)));
+        assertEquals(1, cheapDetector.evaluations);
+        assertEquals(0, expensiveDetector.evaluations);
+        assertEquals(1, expensiveDetector.accepted);
+    }
+
+    @Test
+    void CustomDetectorShouldRunAfterBuiltInDetectorsWithSameCost() {
+        FixedScoreDetector detector = new FixedScoreDetector(7, 1);
+        transactionEngine.addFraudDetector(detector);
+
+        assertEquals(10, transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true)));
+        assertEquals(0, detector.evaluations);
+        assertEquals(7, transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 5, false)));
+        assertEquals(1, detector.evaluations);
+        assertEquals(0, transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 5, false)));
+    }
+
+    @Test
+    void AdaptiveOrderShouldMoveFrequentlyHittingDetectorFirst() {
+        FixedScoreDetector detector = new FixedScoreDetector(7, 1);
+        transactionEngine.addFraudDetector(detector);
+        transactionEngine.setAdaptiveDetectorOrder(true);
+
+        for (int i = 0; i < FraudDetectorChain.REORDER_INTERVAL; i++) {
+            transactionEngine.addTransactionAndDetectFraud(Transactions.of(i, 1, 0, false));
+        }
+
+        assertSame(detector, transactionEngine.detectors.entries[0].detector);
+        assertEquals(7, transactionEngine.addTransactionAndDetectFraud(
+                Transactions.of(FraudDetectorChain.REORDER_INTERVAL, 2, 50, true)));
+    }
+}
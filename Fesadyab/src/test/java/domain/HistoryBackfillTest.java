@@ -0,0 +1,129 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HistoryBackfillTest {
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+        pool = null;
+    }
+
+    // Long enough to span several chunks, with duplicate ids and amounts around the threshold.
+    private static List<Transaction> RandomStream(long seed, int threshold) {
+        Random random = new Random(seed);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            int amount = random.nextInt(6) == 0 ? threshold + random.nextInt(5) - 1 : random.nextInt(threshold);
+            transactions.add(Transactions.of(random.nextInt(50_000), random.nextInt(500), amount,
+                    random.nextBoolean()));
+        }
+        return transactions;
+    }
+
+    // Sequential replay with another multiplier, written out as the engine would do it.
+    private static int[] ReplayWithMultiplier(List<Transaction> transactions, int threshold, int debitMultiplier) {
+        int[] fraudScores = new int[transactions.size()];
+        Set<Integer> seenIds = new HashSet<>();
+        Map<Integer, long[]> totals = new HashMap<>();
+        ThresholdPatternDetector pattern = new ThresholdPatternDetector(threshold);
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (!seenIds.add(transaction.getTransactionId())) {
+                continue;
+            }
+
+            long[] total = totals.computeIfAbsent(transaction.getAccountId(), accountId -> new long[2]);
+            int average = total[1] == 0 ? 0 : (int) (total[0] / total[1]);
+            int fraudScore = transaction.isDebit() && transaction.getAmount() > debitMultiplier * average
+                    ? transaction.getAmount() - debitMultiplier * average
+                    : 0;
+            fraudScores[i] = fraudScore != 0 ? fraudScore : pattern.score();
+
+            total[0] += transaction.getAmount();
+            total[1]++;
+            pattern.accept(transaction.getAmount());
+        }
+        return fraudScores;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {50, 500, 1000})
+    void RescoreShouldMatchSequentialEngineReplay(int threshold) {
+        List<Transaction> transactions = RandomStream(threshold, threshold);
+        TransactionEngine transactionEngine = new TransactionEngine();
+        transactionEngine.THRESHOLD = threshold;
+        transactionEngine.thresholdPattern = new ThresholdPatternDetector(threshold);
+        int[] expected = new int[transactions.size()];
+        for (int i = 0; i < transactions.size(); i++) {
+            expected[i] = transactionEngine.addTransactionAndDetectFraud(transactions.get(i));
+        }
+
+        assertArrayEquals(expected, new HistoryBackfill(threshold, 2, pool).rescore(transactions));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 5})
+    void RescoreShouldApplyDebitMultiplier(int debitMultiplier) {
+        List<Transaction> transactions = RandomStream(debitMultiplier, 700);
+
+        assertArrayEquals(ReplayWithMultiplier(transactions, 700, debitMultiplier),
+                new HistoryBackfill(700, debitMultiplier, pool).rescore(transactions));
+    }
+
+    @Test
+    void RescoreShouldFindPatternThatHoldsToTheEnd() {
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(Transactions.of(0, 1, 1000, false));
+        transactions.add(Transactions.of(1, 1, 2000, false));
+        for (int i = 2; i < 40_000; i++) {
+            transactions.add(Transactions.of(i, 1, i == 30_000 ? 1500 : i % 2 == 0 ? 10 : 3000, false));
+        }
+
+        int[] fraudScores = new HistoryBackfill(1600, 2, pool).rescore(transactions);
+        assertEquals(1000, fraudScores[39_999]);
+        assertArrayEquals(ReplayWithMultiplier(transactions, 1000, 2),
+                new HistoryBackfill(1000, 2, pool).rescore(transactions));
+        assertArrayEquals(ReplayWithMultiplier(transactions, 1600, 2),
+                new HistoryBackfill(1600, 2, pool).rescore(transactions));
+    }
+
+    @Test
+    void RescoreHistoryShouldReproduceEngineScores() {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        List<Integer> acceptedScores = new ArrayList<>();
+        for (Transaction transaction : RandomStream(9, 1000)) {
+            int historySize = transactionEngine.transactionHistory.size();
+            int fraudScore = transactionEngine.addTransactionAndDetectFraud(transaction);
+            if (transactionEngine.transactionHistory.size() > historySize) {
+                acceptedScores.add(fraudScore);
+            }
+        }
+
+        int[] expected = acceptedScores.stream().mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(expected, transactionEngine.rescoreHistory(1000, 2));
+    }
+}
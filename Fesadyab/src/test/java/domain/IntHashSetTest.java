@@ -0,0 +1,64 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IntHashSetTest {
+    private IntHashSet intHashSet;
+
+    @BeforeEach
+    void setUp() {
+        intHashSet = new IntHashSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        intHashSet = null;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE})
+    void AddShouldRejectDuplicateKey(int key) {
+        assertFalse(intHashSet.contains(key));
+        assertTrue(intHashSet.add(key));
+        assertFalse(intHashSet.add(key));
+        assertTrue(intHashSet.contains(key));
+        assertEquals(1, intHashSet.size());
+    }
+
+    @Test
+    void ContainsShouldFindAllKeysAfterGrowing() {
+        for (int key = -5000; key < 5000; key += 2) {
+            assertTrue(intHashSet.add(key));
+        }
+
+        assertEquals(5000, intHashSet.size());
+        for (int key = -5000; key < 5000; key++) {
+            assertEquals(key % 2 == 0, intHashSet.contains(key));
+        }
+    }
+
+    @Test
+    void RemoveShouldKeepRemainingKeysReachable() {
+        for (int key = 0; key < 4000; key++) {
+            intHashSet.add(key);
+        }
+        for (int key = 0; key < 4000; key += 3) {
+            assertTrue(intHashSet.remove(key));
+        }
+
+        assertFalse(intHashSet.remove(0));
+        assertFalse(intHashSet.remove(5000));
+        for (int key = 0; key < 4000; key++) {
+            assertEquals(key % 3 != 0, intHashSet.contains(key));
+        }
+        assertEquals(2666, intHashSet.size());
+    }
+}
@@ -0,0 +1,63 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    private LatencyHistogram latencyHistogram;
+
+    @BeforeEach
+    void setUp() {
+        latencyHistogram = new LatencyHistogram();
+    }
+
+    @AfterEach
+    void tearDown() {
+        latencyHistogram = null;
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 7, 8, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE})
+    void BucketShouldContainValueWithinRelativeError(long value) {
+        int bucket = LatencyHistogram.bucketOf(value);
+        long upperBound = LatencyHistogram.upperBoundOf(bucket);
+
+        assertTrue(upperBound >= value);
+        assertTrue(upperBound - value <= value / 8);
+        if (bucket > 0) {
+            assertTrue(LatencyHistogram.upperBoundOf(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    void PercentileShouldReportRecordedDistribution() {
+        for (int value = 1; value <= 1000; value++) {
+            latencyHistogram.record(value);
+        }
+
+        assertEquals(1000, latencyHistogram.count());
+        assertEquals(1000, latencyHistogram.max());
+        assertEquals(500.5, latencyHistogram.mean());
+        long median = latencyHistogram.percentile(50);
+        assertTrue(median >= 500 && median <= 500 * 9 / 8);
+        assertEquals(1000, latencyHistogram.percentile(100));
+    }
+
+    @Test
+    void ResetShouldClearCopyIndependently() {
+        latencyHistogram.record(42);
+        LatencyHistogram copy = latencyHistogram.copy();
+        latencyHistogram.reset();
+
+        assertEquals(0, latencyHistogram.count());
+        assertEquals(0, latencyHistogram.percentile(99));
+        assertEquals(1, copy.count());
+        assertEquals(42, copy.percentile(99));
+    }
+}
@@ -0,0 +1,179 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MicroBatchingScorerTest {
+    private TransactionEngine transactionEngine;
+
+    @BeforeEach
+    void setUp() {
+        transactionEngine = new TransactionEngine();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionEngine = null;
+    }
+
+    @Test
+    void SubmitShouldScoreInSubmissionOrderLikeSequentialEngine() throws Exception {
+        TransactionEngine sequentialEngine = new TransactionEngine();
+        Random random = new Random(3);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            transactions.add(Transactions.of(random.nextInt(1500), random.nextInt(20),
+                    random.nextInt(4) == 0 ? 1001 + random.nextInt(2) : random.nextInt(500), random.nextBoolean()));
+        }
+
+        List<CompletableFuture<Integer>> fraudScores = new ArrayList<>();
+        MicroBatchingScorer scorer = new MicroBatchingScorer(transactionEngine, 64, 1_000);
+        scorer.start();
+        for (Transaction transaction : transactions) {
+            fraudScores.add(scorer.submit(transaction));
+        }
+        scorer.close();
+
+        for (int i = 0; i < transactions.size(); i++) {
+            assertEquals(sequentialEngine.addTransactionAndDetectFraud(transactions.get(i)), fraudScores.get(i).get());
+        }
+        MicroBatchingScorer.Stats stats = scorer.stats();
+        assertEquals(2000, stats.transactions());
+        assertTrue(stats.batches() < 2000);
+        assertTrue(stats.maxBatchSize() <= 64);
+        assertTrue(stats.minBatchSize() >= 1);
+        assertEquals(2000.0 / stats.batches(), stats.meanBatchSize(), 1e-9);
+    }
+
+    @Test
+    void ConcurrentSubmittersShouldAllBeScored() throws Exception {
+        MicroBatchingScorer scorer = new MicroBatchingScorer(transactionEngine, 32, 100);
+        scorer.start();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<CompletableFuture<Integer>>>> submitters = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int base = thread * 1000;
+            submitters.add(executor.submit(() -> {
+                List<CompletableFuture<Integer>> fraudScores = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    fraudScores.add(scorer.submit(Transactions.of(base + i, base + i % 10, 100, false)));
+                }
+                return fraudScores;
+            }));
+        }
+
+        for (Future<List<CompletableFuture<Integer>>> submitter : submitters) {
+            for (CompletableFuture<Integer> fraudScore : submitter.get()) {
+                assertEquals(0, fraudScore.get());
+            }
+        }
+        executor.shutdown();
+        scorer.close();
+
+        assertEquals(4000, transactionEngine.transactionHistory.size());
+        assertEquals(4000, scorer.stats().transactions());
+    }
+
+    @Test
+    void SubmitShouldFailWhenNotRunning() throws InterruptedException {
+        MicroBatchingScorer scorer = new MicroBatchingScorer(transactionEngine);
+        CompletableFuture<Integer> beforeStart = scorer.submit(Transactions.of(1, 1, 10, false));
+        scorer.start();
+        scorer.close();
+        CompletableFuture<Integer> afterClose = scorer.submit(Transactions.of(2, 1, 10, false));
+
+        assertThrows(ExecutionException.class, beforeStart::get);
+        assertThrows(ExecutionException.class, afterClose::get);
+        assertEquals(0, transactionEngine.transactionHistory.size());
+    }
+
+    // Transactions scored before the failure stay accepted, and the failing one's id is taken.
+    @Test
+    void FailedBatchShouldNotMeanTransactionsWereRejected() throws Exception {
+        transactionEngine.addFraudDetector(new FraudDetector() {
+            @Override
+            public int score(Transaction txn) {
+                if (txn.getTransactionId() == 3) {
+                    throw new IllegalStateException("Detector failed");
+                }
+                return 0;
+            }
+
+            @Override
+            public int relativeCost() {
+                return 1;
+            }
+        });
+
+        List<CompletableFuture<Integer>> fraudScores = new ArrayList<>();
+        MicroBatchingScorer scorer = new MicroBatchingScorer(transactionEngine, 64, 10_000);
+        scorer.start();
+        for (int id = 1; id <= 3; id++) {
+            fraudScores.add(scorer.submit(Transactions.of(id, 1, 10, true)));
+        }
+        scorer.close();
+
+        assertThrows(ExecutionException.class, () -> fraudScores.get(2).get());
+        assertEquals(2, transactionEngine.transactionHistory.size());
+        assertEquals(0, transactionEngine.addTransactionAndDetectFraud(Transactions.of(3, 1, 10, true)));
+        assertEquals(2, transactionEngine.transactionHistory.size());
+    }
+
+    // An Error ends the worker; every pending future fails with it instead of waiting forever.
+    @Test
+    void ErrorInDetectorShouldFailPendingFutures() throws Exception {
+        transactionEngine.addFraudDetector(new FraudDetector() {
+            @Override
+            public int score(Transaction txn) {
+                if (txn.getTransactionId() == 3) {
+                    throw new AssertionError("Detector failed");
+                }
+                return 0;
+            }
+
+            @Override
+            public int relativeCost() {
+                return 1;
+            }
+        });
+
+        List<CompletableFuture<Integer>> fraudScores = new ArrayList<>();
+        MicroBatchingScorer scorer = new MicroBatchingScorer(transactionEngine, 4, 10_000);
+        scorer.start();
+        for (int id = 1; id <= 50; id++) {
+            fraudScores.add(scorer.submit(Transactions.of(id, 1, 10, true)));
+        }
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> fraudScores.get(2).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, failure.getCause());
+        for (CompletableFuture<Integer> fraudScore : fraudScores) {
+            assertDoesNotThrow(() -> fraudScore.handle((score, e) -> 0).get(10, TimeUnit.SECONDS));
+        }
+        assertThrows(ExecutionException.class, () -> scorer.submit(Transactions.of(51, 1, 10, true)).get());
+        scorer.close();
+    }
+
+    @Test
+    void ConstructorShouldRejectInvalidKnobs() {
+        assertThrows(IllegalArgumentException.class, () -> new MicroBatchingScorer(transactionEngine, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new MicroBatchingScorer(transactionEngine, 10, -1));
+    }
+}
@@ -0,0 +1,95 @@
+package domain;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapTransactionHistoryTest {
+    private OffHeapTransactionHistory transactionHistory;
+
+    @BeforeEach
+    void setUp() {
+        transactionHistory = new OffHeapTransactionHistory(64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionHistory = null;
+    }
+
+    @Test
+    void NewHistoryShouldBeEmpty() {
+        assertTrue(transactionHistory.isEmpty());
+        assertEquals(0, transactionHistory.size());
+    }
+
+    @Test
+    void AddShouldKeepEveryColumnInArrivalOrder() {
+        for (int i = 0; i < 1000; i++) {
+            transactionHistory.add(Transactions.of(i, i % 7, -i, i % 3 == 0));
+        }
+
+        assertEquals(1000, transactionHistory.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, transactionHistory.transactionId(i));
+            assertEquals(i % 7, transactionHistory.accountId(i));
+            assertEquals(-i, transactionHistory.amount(i));
+            assertEquals(i % 3 == 0, transactionHistory.isDebit(i));
+        }
+    }
+
+    @Test
+    void RemoveFirstShouldKeepRetainedTransactionsAcrossCompaction() {
+        for (int i = 0; i < 5000; i++) {
+            Transaction transaction = Transactions.of(i, i % 7, -i, i % 3 == 0);
+            transaction.setTimestamp(i % 2 == 0 ? 0 : 1000L + i);
+            transactionHistory.add(transaction);
+            if (transactionHistory.size() > 100) {
+                transactionHistory.removeFirst();
+            }
+        }
+
+        assertEquals(100, transactionHistory.size());
+        assertTrue(transactionHistory.chunks.length <= 3);
+        for (int index = 0; index < 100; index++) {
+            int i = 4900 + index;
+            assertEquals(i, transactionHistory.transactionId(index));
+            assertEquals(i % 7, transactionHistory.accountId(index));
+            assertEquals(-i, transactionHistory.amount(index));
+            assertEquals(i % 3 == 0, transactionHistory.isDebit(index));
+            assertEquals(i % 2 == 0 ? 0 : 1000L + i, transactionHistory.timestamp(index));
+        }
+    }
+
+    @Test
+    void ConstructorShouldRejectChunkSizeThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapTransactionHistory(100));
+    }
+
+    @Test
+    void OffHeapEngineShouldScoreLikeDefaultEngine() {
+        TransactionEngine onHeapEngine = new TransactionEngine(TransactionWindow.ofCount(500));
+        TransactionEngine offHeapEngine = TransactionEngine.withOffHeapHistory(TransactionWindow.ofCount(500));
+        Random random = new Random(11);
+
+        for (int i = 0; i < 20_000; i++) {
+            Transaction transaction = Transactions.of(random.nextInt(50_000), random.nextInt(40),
+                    random.nextInt(4) == 0 ? 1001 + random.nextInt(3) : random.nextInt(600), random.nextBoolean());
+            assertEquals(onHeapEngine.addTransactionAndDetectFraud(transaction),
+                    offHeapEngine.addTransactionAndDetectFraud(transaction));
+        }
+        assertEquals(onHeapEngine.getTransactionPatternAboveThreshold(1000),
+                offHeapEngine.getTransactionPatternAboveThreshold(1000));
+    }
+
+    @Test
+    void RemoveFirstShouldFailWhenEmpty() {
+        assertThrows(IllegalStateException.class, () -> transactionHistory.removeFirst());
+    }
+}
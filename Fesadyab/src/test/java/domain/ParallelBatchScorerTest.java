@@ -0,0 +1,109 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelBatchScorerTest {
+    private static List<Transaction> CreateRandomTransactions(Random random, int count, int firstId)
+    {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int transactionId = random.nextInt(10) == 0 ? firstId + random.nextInt(i + 1) : firstId + i;
+            int amount = random.nextInt(5) == 0 ? 1000 + random.nextInt(4) : random.nextInt(500);
+            transactions.add(Transactions.of(transactionId, random.nextInt(50), amount, random.nextBoolean()));
+        }
+        return transactions;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 100, ParallelBatchScorer.PARALLEL_CUTOFF, 20000})
+    void ScoreShouldMatchSequentialIngestion(int batchSize) {
+        Random random = new Random(batchSize);
+        List<Transaction> history = CreateRandomTransactions(random, 300, 0);
+        List<Transaction> batch = CreateRandomTransactions(random, batchSize, 200);
+
+        TransactionEngine sequentialEngine = new TransactionEngine();
+        TransactionEngine batchEngine = new TransactionEngine();
+        history.forEach(sequentialEngine::addTransactionAndDetectFraud);
+        history.forEach(batchEngine::addTransactionAndDetectFraud);
+
+        int[] expectedFraudScores = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            expectedFraudScores[i] = sequentialEngine.addTransactionAndDetectFraud(batch.get(i));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelBatchScorer scorer = new ParallelBatchScorer(batchEngine, pool);
+            assertArrayEquals(expectedFraudScores, scorer.score(batch.toArray(new Transaction[0]), batchSize));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(sequentialEngine.transactionHistory.size(), batchEngine.transactionHistory.size());
+        for (int accountId = 0; accountId < 50; accountId++) {
+            assertEquals(sequentialEngine.getAverageTransactionAmountByAccount(accountId),
+                    batchEngine.getAverageTransactionAmountByAccount(accountId));
+        }
+        assertEquals(sequentialEngine.thresholdPattern.score(), batchEngine.thresholdPattern.score());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 10})
+    void AddTransactionsShouldReturnScoresInInputOrder(int batchSize) {
+        List<Transaction> batch = CreateRandomTransactions(new Random(batchSize), batchSize, 0);
+        TransactionEngine sequentialEngine = new TransactionEngine();
+
+        int[] expectedFraudScores = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            expectedFraudScores[i] = sequentialEngine.addTransactionAndDetectFraud(batch.get(i));
+        }
+
+        assertArrayEquals(expectedFraudScores, new TransactionEngine().addTransactionsAndDetectFraud(batch));
+    }
+
+    @Test
+    void ParallelBatchShouldRecordMetricsLikeSequentialIngestion() {
+        List<Transaction> batch = new ArrayList<>();
+        Random random = new Random(12);
+        for (int i = 0; i < 10_000; i++) {
+            int transactionId = i % 10 == 9 ? i - 1 : i;
+            int amount = random.nextInt(20) == 0 ? 5000 : random.nextInt(500);
+            batch.add(Transactions.of(transactionId, random.nextInt(50), amount, random.nextBoolean()));
+        }
+
+        TransactionEngine sequentialEngine = new TransactionEngine();
+        EngineMetrics sequentialMetrics = sequentialEngine.enableMetrics();
+        batch.forEach(sequentialEngine::addTransactionAndDetectFraud);
+
+        TransactionEngine batchEngine = new TransactionEngine();
+        EngineMetrics batchMetrics = batchEngine.enableMetrics();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelBatchScorer(batchEngine, pool).score(batch.toArray(new Transaction[0]), batch.size());
+        } finally {
+            pool.shutdown();
+        }
+
+        EngineMetrics.Snapshot expected = sequentialMetrics.snapshot();
+        EngineMetrics.Snapshot actual = batchMetrics.snapshot();
+        assertEquals(9000, actual.accepted());
+        assertEquals(1000, actual.duplicates());
+        assertEquals(expected.flagged(), actual.flagged());
+        assertTrue(actual.flagged() > 0);
+        for (EngineMetrics.Stage stage : EngineMetrics.Stage.values()) {
+            assertEquals(expected.latencies().get(stage).count(), actual.latencies().get(stage).count(),
+                    stage.name());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuantileSketchTest {
+    private static int[] ShuffledAmounts(int count, long seed) {
+        int[] amounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            amounts[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int amount = amounts[i];
+            amounts[i] = amounts[j];
+            amounts[j] = amount;
+        }
+        return amounts;
+    }
+
+    private static byte[] Serialize(QuantileSketch sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void QuantileShouldStayWithinRankErrorAndBoundedSize(boolean sorted) throws IOException {
+        int count = 100_000;
+        int[] amounts = ShuffledAmounts(count, 1);
+        if (sorted) {
+            Arrays.sort(amounts);
+        }
+        QuantileSketch sketch = new QuantileSketch();
+        for (int amount : amounts) {
+            sketch.add(amount);
+        }
+
+        for (double fraction : new double[] {0.1, 0.5, 0.9, 0.99}) {
+            assertEquals(fraction * count, sketch.quantile(fraction), 0.05 * count);
+        }
+        assertEquals(0, sketch.quantile(0));
+        assertEquals(count - 1, sketch.quantile(1));
+        assertTrue(sketch.retainedItems() <= 4 * QuantileSketch.DEFAULT_K);
+        assertTrue(Serialize(sketch).length < 512);
+    }
+
+    @Test
+    void MergeShouldMatchSketchOfCombinedStream() {
+        int[] amounts = ShuffledAmounts(20_000, 2);
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        for (int i = 0; i < amounts.length; i++) {
+            (i % 3 == 0 ? left : right).add(amounts[i]);
+        }
+
+        left.merge(right);
+
+        assertEquals(amounts.length, left.count);
+        assertEquals(10_000, left.quantile(0.5), 1_000);
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new QuantileSketch(16)));
+    }
+
+    @Test
+    void ReadFromShouldRestoreWrittenSketch() throws IOException {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int amount : ShuffledAmounts(5_000, 3)) {
+            sketch.add(amount);
+        }
+
+        QuantileSketch restored = QuantileSketch.readFrom(new DataInputStream(new ByteArrayInputStream(Serialize(sketch))));
+
+        assertEquals(sketch.count, restored.count);
+        for (double fraction = 0; fraction <= 1; fraction += 0.05) {
+            assertEquals(sketch.quantile(fraction), restored.quantile(fraction));
+        }
+        restored.add(7);
+        sketch.add(7);
+        assertEquals(sketch.quantile(0.3), restored.quantile(0.3));
+    }
+
+    // Accounts of very different sizes share one scratch buffer for their queries.
+    @ParameterizedTest
+    @ValueSource(longs = {4, 17})
+    void SharedScratchShouldMatchStandaloneQuantiles(long seed) {
+        Random random = new Random(seed);
+        AccountQuantileSketches sketches = new AccountQuantileSketches(8);
+        for (int i = 0; i < 20_000; i++) {
+            int accountId = random.nextInt(4) == 0 ? random.nextInt(50) : 0;
+            sketches.add(accountId, random.nextInt(1000));
+            double fraction = random.nextDouble();
+            assertEquals(sketches.sketch(accountId).quantile(fraction), sketches.quantile(accountId, fraction));
+        }
+    }
+
+    @Test
+    void SketchesShouldStayWithinAFewHundredBytesPerAccount() {
+        Random random = new Random(8);
+        AccountQuantileSketches sketches = new AccountQuantileSketches(QuantileSketch.DEFAULT_K);
+        for (int i = 0; i < 1_000_000; i++) {
+            int accountId = random.nextInt(1000);
+            sketches.add(accountId, random.nextInt(100_000));
+            if (i % 10 == 0) {
+                sketches.quantile(accountId, 0.95);
+            }
+        }
+
+        long bytes = 0;
+        for (int row = 0; row < sketches.size; row++) {
+            bytes += sketches.sketches[row].footprintBytes();
+        }
+        assertEquals(1000, sketches.size);
+        // About 450 bytes with the default k, scratch space for queries not included.
+        assertTrue(bytes / sketches.size < 512, "bytes per account: " + bytes / sketches.size);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, QuantileSketch.MAX_K + 1})
+    void SketchShouldRejectKOutsideTheSerializableRange(int k) {
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(k));
+        assertThrows(IllegalArgumentException.class, () -> new PercentileAmountDetector(0.9, k));
+    }
+
+    @Test
+    void PercentileDetectorShouldIgnoreOutliersThatSkewTheAverage() {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        PercentileAmountDetector detector = new PercentileAmountDetector(0.95);
+        for (int i = 0; i < 100; i++) {
+            Transaction txn = Transactions.of(i, 1, i == 50 ? 100_000 : 100 + i % 10, false);
+            detector.onAccepted(txn);
+            transactionEngine.addTransactionAndDetectFraud(txn);
+        }
+
+        Transaction debit = Transactions.of(100, 1, 500, true);
+        assertEquals(0, transactionEngine.detectFraudulentTransaction(debit));
+        assertEquals(391, detector.score(debit));
+        assertEquals(0, detector.score(Transactions.of(101, 1, 500, false)));
+        assertEquals(0, detector.score(Transactions.of(102, 1, 105, true)));
+        assertEquals(5, detector.score(Transactions.of(103, 2, 5, true)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0, -0.1, 1.1})
+    void PercentileDetectorShouldRejectInvalidPercentile(double percentile) {
+        assertThrows(IllegalArgumentException.class, () -> new PercentileAmountDetector(percentile));
+    }
+}
@@ -0,0 +1,90 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RangeAggregateIndexTest {
+    // Reference answer: a loop over the history, as callers had to write before.
+    private static RangeAggregate ScanHistory(TransactionHistory history, Integer accountId, int from, int to) {
+        long sum = 0;
+        long count = 0;
+        long debitSum = 0;
+        long debitCount = 0;
+        for (int i = from; i < to; i++) {
+            if (accountId != null && history.accountId(i) != accountId) {
+                continue;
+            }
+            sum += history.amount(i);
+            count++;
+            if (history.isDebit(i)) {
+                debitSum += history.amount(i);
+                debitCount++;
+            }
+        }
+        return new RangeAggregate(sum, count, debitSum, debitCount);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void RangeQueriesShouldMatchHistoryScan(boolean windowed) {
+        Random random = new Random(windowed ? 1 : 2);
+        TransactionEngine transactionEngine = windowed
+                ? new TransactionEngine(TransactionWindow.ofCount(300))
+                : new TransactionEngine();
+
+        for (int i = 0; i < 3000; i++) {
+            if (i == 500) {
+                transactionEngine.enableRangeAggregates();
+            }
+            transactionEngine.addTransactionAndDetectFraud(Transactions.of(i, random.nextInt(12),
+                    random.nextInt(2000) - 200, random.nextBoolean()));
+            if (i < 500 || i % 7 != 0) {
+                continue;
+            }
+
+            TransactionHistory history = transactionEngine.transactionHistory;
+            int from = random.nextInt(history.size() + 1);
+            int to = from + random.nextInt(history.size() - from + 1);
+            int accountId = random.nextInt(13);
+            assertEquals(ScanHistory(history, null, from, to), transactionEngine.aggregateRange(from, to));
+            assertEquals(ScanHistory(history, accountId, from, to),
+                    transactionEngine.aggregateRange(accountId, from, to));
+            assertEquals(ScanHistory(history, accountId, Math.max(0, history.size() - 50), history.size()),
+                    transactionEngine.aggregateLast(accountId, 50));
+        }
+    }
+
+    @Test
+    void AggregateLastShouldCoverWholeHistoryWhenShorter() {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        transactionEngine.enableRangeAggregates();
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true));
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 25, false));
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(3, 2, 40, true));
+
+        RangeAggregate aggregate = transactionEngine.aggregateLast(100);
+        assertEquals(new RangeAggregate(75, 3, 50, 2), aggregate);
+        assertEquals(25, aggregate.average());
+        assertEquals(25, aggregate.debitAverage());
+        assertEquals(new RangeAggregate(25, 1, 0, 0), transactionEngine.aggregateLast(1, 2));
+        assertEquals(0, transactionEngine.aggregateRange(7, 0, 3).average());
+    }
+
+    @Test
+    void QueriesShouldFailWhenNotEnabledOrOutOfRange() {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true));
+
+        assertThrows(IllegalStateException.class, () -> transactionEngine.aggregateRange(0, 1));
+        transactionEngine.enableRangeAggregates();
+        assertThrows(IndexOutOfBoundsException.class, () -> transactionEngine.aggregateRange(0, 2));
+        assertThrows(IllegalStateException.class,
+                () -> TransactionEngine.withEwmaBaselines(0.5).enableRangeAggregates());
+    }
+}
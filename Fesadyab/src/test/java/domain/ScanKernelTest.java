@@ -0,0 +1,71 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public class ScanKernelTest {
+    private final ScanKernel scalarKernel = new ScalarScanKernel();
+    private final ScanKernel vectorKernel = new VectorScanKernel();
+
+    @Test
+    void BestKernelShouldUseVectorApiWhenModuleIsAdded() {
+        // Surefire starts the test JVM with --add-modules jdk.incubator.vector.
+        assertInstanceOf(VectorScanKernel.class, ScanKernels.BEST);
+    }
+
+    // Differential check of the vector kernel against the scalar loops, including ranges that
+    // don't start or end on a vector boundary and sums that overflow an int.
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8})
+    void VectorKernelShouldMatchScalarKernel(long seed) {
+        Random random = new Random(seed);
+        int length = random.nextInt(2000);
+        int[] amounts = new int[length];
+        int[] accountIds = new int[length];
+        for (int i = 0; i < length; i++) {
+            amounts[i] = random.nextInt(8) == 0 ? random.nextInt() : random.nextInt(3000) - 1000;
+            accountIds[i] = random.nextInt(6);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            int from = random.nextInt(length + 1);
+            int to = from + random.nextInt(length - from + 1);
+            int threshold = random.nextInt(10) == 0 ? Integer.MIN_VALUE : random.nextInt(3000) - 1000;
+            int accountId = random.nextInt(7);
+
+            assertEquals(scalarKernel.sumAbove(amounts, from, to, threshold),
+                    vectorKernel.sumAbove(amounts, from, to, threshold));
+            assertEquals(scalarKernel.countAbove(amounts, from, to, threshold),
+                    vectorKernel.countAbove(amounts, from, to, threshold));
+            assertEquals(scalarKernel.sumForAccount(accountIds, amounts, from, to, accountId),
+                    vectorKernel.sumForAccount(accountIds, amounts, from, to, accountId));
+            assertEquals(scalarKernel.countForAccount(accountIds, from, to, accountId),
+                    vectorKernel.countForAccount(accountIds, from, to, accountId));
+        }
+    }
+
+    @Test
+    void EngineScansShouldSkipEvictedTransactions() {
+        TransactionEngine transactionEngine = new TransactionEngine(TransactionWindow.ofCount(100));
+        TransactionEngine offHeapEngine = TransactionEngine.withOffHeapHistory(TransactionWindow.ofCount(100));
+        for (int i = 0; i < 1000; i++) {
+            Transaction transaction = Transactions.of(i, i % 3, i, false);
+            transactionEngine.addTransactionAndDetectFraud(transaction);
+            offHeapEngine.addTransactionAndDetectFraud(transaction);
+        }
+
+        assertEquals(50, transactionEngine.countAboveThreshold(949));
+        assertEquals(48725, transactionEngine.sumAboveThreshold(949));
+        assertArrayEquals(new int[] {949, 949, 950, 0}, transactionEngine.scanAveragesByAccount(0, 1, 2, 3));
+        assertEquals(transactionEngine.sumAboveThreshold(949), offHeapEngine.sumAboveThreshold(949));
+        assertArrayEquals(transactionEngine.scanAveragesByAccount(0, 1, 2, 3),
+                offHeapEngine.scanAveragesByAccount(0, 1, 2, 3));
+    }
+}
@@ -0,0 +1,110 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ThresholdPatternDetectorTest {
+    @Test
+    void ScoreShouldFollowEstablishedDiff() {
+        ThresholdPatternDetector detector = new ThresholdPatternDetector(13);
+        for (int amount : new int[] {5, 13, 19, 33}) {
+            detector.accept(amount);
+        }
+        assertEquals(14, detector.score());
+
+        detector.accept(40);
+        assertEquals(0, detector.score());
+        detector.accept(33);
+        assertEquals(0, detector.score());
+    }
+
+    // Differential check of the incremental detector against the full history scan.
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16})
+    void ScoreShouldMatchFullScanOnRandomHistories(long seed) {
+        Random random = new Random(seed);
+        int threshold = random.nextInt(2000) - 500;
+        int spread = 1 + random.nextInt(8);
+        int length = 1 + random.nextInt(300);
+
+        TransactionEngine transactionEngine = new TransactionEngine();
+        ThresholdPatternDetector detector = new ThresholdPatternDetector(threshold);
+
+        for (int i = 0; i < length; i++) {
+            int amount = random.nextInt(10) == 0
+                    ? random.nextInt()
+                    : threshold + random.nextInt(2 * spread + 1) - spread;
+            transactionEngine.addTransactionAndDetectFraud(Transactions.of(i, random.nextInt(4), amount, true));
+            detector.accept(amount);
+
+            assertEquals(transactionEngine.getTransactionPatternAboveThreshold(threshold), detector.score());
+        }
+    }
+
+    // Differential check of the multi-threshold sweep against one full scan per threshold.
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12})
+    void SweepShouldMatchFullScanForEveryThreshold(long seed) {
+        Random random = new Random(seed);
+        int base = random.nextInt(2000) - 500;
+        int spread = 1 + random.nextInt(8);
+        int length = 1 + random.nextInt(200);
+        int[] thresholds = new int[1 + random.nextInt(40)];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = random.nextInt(20) == 0
+                    ? random.nextInt()
+                    : base + random.nextInt(4 * spread + 1) - 2 * spread;
+        }
+
+        TransactionEngine transactionEngine = new TransactionEngine();
+        for (int i = 0; i < length; i++) {
+            int amount = random.nextInt(10) == 0
+                    ? random.nextInt()
+                    : base + random.nextInt(2 * spread + 1) - spread;
+            transactionEngine.addTransactionAndDetectFraud(Transactions.of(i, random.nextInt(4), amount, false));
+
+            int[] scores = transactionEngine.getTransactionPatternsAboveThresholds(thresholds);
+            for (int t = 0; t < thresholds.length; t++) {
+                assertEquals(transactionEngine.getTransactionPatternAboveThreshold(thresholds[t]), scores[t]);
+            }
+        }
+    }
+
+    @Test
+    void SweepShouldReturnScoresInRequestOrder() {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        int[] amounts = {10, 20, 30, 5, 30};
+        for (int i = 0; i < amounts.length; i++) {
+            transactionEngine.addTransactionAndDetectFraud(Transactions.of(i, 1, amounts[i], false));
+        }
+
+        assertArrayEquals(new int[] {0, 10, 0, 10, 0},
+                transactionEngine.getTransactionPatternsAboveThresholds(20, 5, 0, 7, 30));
+        assertArrayEquals(new int[0], transactionEngine.getTransactionPatternsAboveThresholds());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4})
+    void AfterShouldMatchAcceptWithoutChangingOriginal(long seed) {
+        Random random = new Random(seed);
+        ThresholdPatternDetector mutableDetector = new ThresholdPatternDetector(100);
+        ThresholdPatternDetector persistentDetector = new ThresholdPatternDetector(100);
+
+        for (int i = 0; i < 200; i++) {
+            int amount = 98 + random.nextInt(6);
+            int scoreBefore = persistentDetector.score();
+            ThresholdPatternDetector next = persistentDetector.after(amount);
+            mutableDetector.accept(amount);
+
+            assertEquals(scoreBefore, persistentDetector.score());
+            assertEquals(mutableDetector.score(), next.score());
+            persistentDetector = next;
+        }
+    }
+}
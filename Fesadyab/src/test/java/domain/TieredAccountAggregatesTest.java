@@ -0,0 +1,180 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TieredAccountAggregatesTest {
+    @TempDir
+    Path directory;
+
+    private static void AssertSameAccount(AccountAggregates expected, AccountAggregates actual, int accountId) {
+        assertEquals(expected.sum(accountId), actual.sum(accountId));
+        assertEquals(expected.count(accountId), actual.count(accountId));
+        assertEquals(expected.debitSum(accountId), actual.debitSum(accountId));
+        assertEquals(expected.debitCount(accountId), actual.debitCount(accountId));
+        assertEquals(expected.average(accountId), actual.average(accountId));
+    }
+
+    private static Transaction[] Workload(long seed, int count) {
+        Transaction[] transactions = new Transaction[count];
+        new WorkloadGenerator(seed)
+                .accounts(5000, 0.8)
+                .uniformAmounts(1000)
+                .spikes(0.01, 10)
+                .duplicates(0.01)
+                .fill(transactions, count);
+        return transactions;
+    }
+
+    // Adds and removes on many accounts through a tiny hot tier, against plain aggregates.
+    @ParameterizedTest
+    @ValueSource(longs = {1, 7, 99})
+    public void TiersMatchPlainAggregates(long seed) throws IOException {
+        Random random = new Random(seed);
+        AccountAggregates expected = new AccountAggregates();
+        Deque<int[]> added = new ArrayDeque<>();
+        try (TieredAccountAggregates tiered = new TieredAccountAggregates(8, directory.resolve("spill"))) {
+            for (int i = 0; i < 50_000; i++) {
+                if (added.size() > 3000 && random.nextInt(3) == 0) {
+                    int[] oldest = added.removeFirst();
+                    expected.remove(oldest[0], oldest[1], oldest[2] == 1);
+                    tiered.remove(oldest[0], oldest[1], oldest[2] == 1);
+                } else {
+                    int accountId = random.nextInt(4000) - 100;
+                    int amount = random.nextInt(1000);
+                    boolean isDebit = random.nextBoolean();
+                    expected.add(accountId, amount, isDebit);
+                    tiered.add(accountId, amount, isDebit);
+                    added.addLast(new int[] {accountId, amount, isDebit ? 1 : 0});
+                }
+            }
+
+            assertTrue(tiered.hotAccountCount() <= 8);
+            assertTrue(tiered.coldAccountCount() > 1024);
+            assertTrue(tiered.spills > 0);
+            assertTrue(tiered.faults > 0);
+            assertEquals(expected.accountCount(), tiered.accountCount());
+            for (int accountId = -100; accountId < 3900; accountId++) {
+                AssertSameAccount(expected, tiered, accountId);
+            }
+        }
+    }
+
+    @Test
+    public void CopyHoldsBothTiers() throws IOException {
+        try (TieredAccountAggregates tiered = new TieredAccountAggregates(2, directory.resolve("spill"))) {
+            for (int accountId = 0; accountId < 10; accountId++) {
+                tiered.add(accountId, accountId * 10, accountId % 2 == 0);
+                tiered.add(accountId, 5, true);
+            }
+
+            AccountAggregates copy = tiered.copy();
+            assertFalse(copy instanceof TieredAccountAggregates);
+            assertEquals(10, copy.accountCount());
+            for (int accountId = 0; accountId < 10; accountId++) {
+                AssertSameAccount(tiered, copy, accountId);
+            }
+        }
+    }
+
+    @Test
+    public void RecentlyUsedAccountsStayHot() throws IOException {
+        try (TieredAccountAggregates tiered = new TieredAccountAggregates(4, directory.resolve("spill"))) {
+            for (int i = 0; i < 1000; i++) {
+                tiered.add(1, 10, true);
+                tiered.add(100 + i, 10, true);
+            }
+
+            // Account 1 is referenced again between any two evictions, so once the first sweep
+            // has cleared the bits of the tier it started with, the hand passes it over.
+            assertTrue(tiered.faults <= 1);
+            assertEquals(1000, tiered.count(1));
+            assertEquals(1001 - 4, tiered.coldAccountCount());
+        }
+    }
+
+    @Test
+    public void RemovingTheLastColdTransactionDropsTheAccount() throws IOException {
+        try (TieredAccountAggregates tiered = new TieredAccountAggregates(1, directory.resolve("spill"))) {
+            tiered.add(1, 10, true);
+            tiered.add(2, 20, false);
+            assertEquals(1, tiered.coldAccountCount());
+
+            tiered.remove(1, 10, true);
+            assertEquals(0, tiered.coldAccountCount());
+            assertEquals(0, tiered.count(1));
+            assertThrows(IllegalStateException.class, () -> tiered.remove(1, 10, true));
+        }
+    }
+
+    @Test
+    public void SpillFileIsGoneAfterClose() throws IOException {
+        Path spill = directory.resolve("spill");
+        TieredAccountAggregates tiered = new TieredAccountAggregates(1, spill);
+        for (int accountId = 0; accountId < 5000; accountId++) {
+            tiered.add(accountId, 10, true);
+        }
+        assertEquals(4999, tiered.coldAccountCount());
+
+        tiered.close();
+        assertFalse(Files.exists(spill));
+        assertFalse(Files.exists(directory.resolve("spill.next")));
+    }
+
+    @Test
+    public void RejectsEmptyHotTier() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TieredAccountAggregates(0, directory.resolve("spill")));
+    }
+
+    // Batches above the parallel cutoff read cold accounts from several threads.
+    @ParameterizedTest
+    @ValueSource(longs = {3, 2024})
+    public void TieredEngineScoresLikeThePlainEngine(long seed) throws IOException {
+        Transaction[] transactions = Workload(seed, 40_000);
+        TransactionEngine plain = new TransactionEngine();
+        try (TransactionEngine tiered = TransactionEngine.withTieredAccounts(64, directory.resolve("spill"), null)) {
+            for (int from = 0; from < transactions.length; from += 10_000) {
+                Transaction[] batch = Arrays.copyOfRange(transactions, from, from + 10_000);
+                assertArrayEquals(plain.addTransactionsAndDetectFraud(batch, batch.length),
+                        tiered.addTransactionsAndDetectFraud(batch, batch.length));
+            }
+            assertEquals(plain.accountAggregates.accountCount(), tiered.accountAggregates.accountCount());
+        }
+        assertFalse(Files.exists(directory.resolve("spill")));
+    }
+
+    // With a window and the off-heap history, only the hot tier and the window stay on the heap.
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void WindowedTieredEngineScoresLikeThePlainEngine(boolean offHeapHistory) throws IOException {
+        Transaction[] transactions = Workload(5, 20_000);
+        TransactionEngine plain = new TransactionEngine(TransactionWindow.ofCount(2000));
+        try (TransactionEngine tiered = TransactionEngine.withTieredAccounts(64, directory.resolve("spill"),
+                TransactionWindow.ofCount(2000), offHeapHistory)) {
+            for (Transaction txn : transactions) {
+                assertEquals(plain.addTransactionAndDetectFraud(txn), tiered.addTransactionAndDetectFraud(txn));
+            }
+            assertEquals(plain.accountAggregates.accountCount(), tiered.accountAggregates.accountCount());
+            assertEquals(offHeapHistory, tiered.transactionHistory instanceof OffHeapTransactionHistory);
+            assertTrue(tiered.transactionHistory.size() <= 2000);
+            assertTrue(tiered.transactionIds.size() <= 2000);
+        }
+    }
+}
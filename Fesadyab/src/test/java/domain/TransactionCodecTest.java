@@ -0,0 +1,131 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionCodecTest {
+    private static Transaction[] RandomTransactions(int count, long seed) {
+        Random random = new Random(seed);
+        Transaction[] transactions = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            transactions[i] = Transactions.of(random.nextInt(), random.nextInt(), random.nextInt(),
+                    random.nextBoolean());
+        }
+        return transactions;
+    }
+
+    private static void AssertSameTransactions(Transaction[] expected, Transaction[] actual, int count) {
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i].getTransactionId(), actual[i].getTransactionId());
+            assertEquals(expected[i].getAccountId(), actual[i].getAccountId());
+            assertEquals(expected[i].getAmount(), actual[i].getAmount());
+            assertEquals(expected[i].isDebit(), actual[i].isDebit());
+        }
+    }
+
+    @Test
+    void EncodeShouldWriteLittleEndianRecordWhateverBufferOrder() {
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionCodec.RECORD_BYTES).order(ByteOrder.BIG_ENDIAN);
+        TransactionCodec.encode(Transactions.of(1, 0x01020304, -1, true), buffer, 0);
+
+        assertEquals(1, buffer.get(0));
+        assertEquals(0, buffer.get(3));
+        assertEquals(4, buffer.get(4));
+        assertEquals(1, buffer.get(7));
+        assertEquals(-1, buffer.get(8));
+        assertEquals(1, buffer.get(12));
+    }
+
+    @Test
+    void BulkDecodeShouldRestoreEncodedTransactionsIntoReusedSlots() {
+        Transaction[] transactions = RandomTransactions(100, 1);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(40 * TransactionCodec.RECORD_BYTES + 5);
+
+        assertEquals(40, TransactionCodec.encode(transactions, 10, 90, buffer));
+        assertEquals(40 * TransactionCodec.RECORD_BYTES, buffer.position());
+
+        buffer.flip();
+        Transaction[] decoded = new Transaction[64];
+        Transaction slot = new Transaction();
+        decoded[0] = slot;
+        assertEquals(40, TransactionCodec.decode(buffer, decoded));
+        assertSame(slot, decoded[0]);
+        assertEquals(0, buffer.remaining());
+
+        Transaction[] expected = new Transaction[40];
+        System.arraycopy(transactions, 10, expected, 0, 40);
+        AssertSameTransactions(expected, decoded, 40);
+    }
+
+    @Test
+    void PackedBatchShouldRoundTripUnsortedTransactions() {
+        Transaction[] transactions = RandomTransactions(500, 2);
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionCodec.maxPackedBytes(500));
+
+        TransactionCodec.encodePacked(transactions, 0, 500, buffer);
+        buffer.flip();
+        Transaction[] decoded = new Transaction[500];
+
+        assertEquals(500, TransactionCodec.decodePacked(buffer, decoded));
+        AssertSameTransactions(transactions, decoded, 500);
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void PackedBatchShouldBeSmallForSortedIds() {
+        Transaction[] transactions = new Transaction[1000];
+        for (int i = 0; i < 1000; i++) {
+            transactions[i] = Transactions.of(1_000_000 + i, i % 50, i % 60, i % 2 == 0);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionCodec.maxPackedBytes(1000));
+
+        TransactionCodec.encodePacked(transactions, 0, 1000, buffer);
+
+        assertTrue(buffer.position() < 5 * 1000);
+        buffer.flip();
+        Transaction[] decoded = new Transaction[1000];
+        assertEquals(1000, TransactionCodec.decodePacked(buffer, decoded));
+        AssertSameTransactions(transactions, decoded, 1000);
+    }
+
+    @Test
+    void EncodePackedShouldLeavePositionWhenBatchDoesNotFit() {
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.put((byte) 7);
+
+        assertThrows(BufferOverflowException.class,
+                () -> TransactionCodec.encodePacked(RandomTransactions(10, 3), 0, 10, buffer));
+        assertEquals(1, buffer.position());
+    }
+
+    @Test
+    void DecodePackedShouldRejectBatchLargerThanTarget() {
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionCodec.maxPackedBytes(10));
+        TransactionCodec.encodePacked(RandomTransactions(10, 4), 0, 10, buffer);
+        buffer.flip();
+
+        assertThrows(IllegalArgumentException.class, () -> TransactionCodec.decodePacked(buffer, new Transaction[5]));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, -1, 127, 128, -64, 300, Integer.MAX_VALUE, Integer.MIN_VALUE})
+    void VarintShouldRoundTripZigzagValues(int value) {
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionCodec.MAX_VARINT_BYTES);
+        TransactionCodec.putVarint(buffer, TransactionCodec.zigzag(value));
+        buffer.flip();
+
+        assertEquals(value, TransactionCodec.unzigzag(TransactionCodec.getVarint(buffer)));
+        assertEquals(0, buffer.remaining());
+    }
+}
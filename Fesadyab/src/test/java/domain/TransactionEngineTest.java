@@ -2,6 +2,7 @@ package domain;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,25 +29,17 @@ public class TransactionEngineTest {
     private static TransactionEngine CreateTransactionEngine(ArrayList<Transaction> transactionHistory)
     {
         TransactionEngine transactionEngine = new TransactionEngine();
-        transactionEngine.transactionHistory = transactionHistory;
+        for (Transaction transaction : transactionHistory) {
+            transactionEngine.addTransactionAndDetectFraud(transaction);
+        }
         return transactionEngine;
     }
 
-    private static Transaction CreateTransactions(int transactionId, int accountId , int amount, boolean isDebit)
-    {
-        Transaction transaction = new Transaction();
-        transaction.setAccountId(accountId);
-        transaction.setAmount(amount);
-        transaction.setTransactionId(transactionId);
-        transaction.setDebit(isDebit);
-        return transaction;
-    }
-
     static Object[][] transactionAverageAmountParameters() {
         ArrayList<Transaction> transactionHistory = new ArrayList<>(List.of(
-                CreateTransactions(1,1, 10, true),
-                CreateTransactions(2,2, 26, true),
-                CreateTransactions(3,1, 30, true)
+                Transactions.of(1,1, 10, true),
+                Transactions.of(2,2, 26, true),
+                Transactions.of(3,1, 30, true)
         ));
 
         TransactionEngine transactionEngine = CreateTransactionEngine(transactionHistory);
@@ -66,10 +59,10 @@ public class TransactionEngineTest {
 
     static Object[][] transactionPatternAboveThresholdParameters() {
         ArrayList<Transaction> transactionHistory = new ArrayList<>(List.of(
-                CreateTransactions(1,1, 5, true),
-                CreateTransactions(2,2, 13, true),
-                CreateTransactions(3,3, 19, true),
-                CreateTransactions(4,4,33, true)
+                Transactions.of(1,1, 5, true),
+                Transactions.of(2,2, 13, true),
+                Transactions.of(3,3, 19, true),
+                Transactions.of(4,4,33, true)
         ));
 
         TransactionEngine transactionEngine = CreateTransactionEngine(transactionHistory);
@@ -94,19 +87,19 @@ public class TransactionEngineTest {
 
     static Object[][] transactionFraudScoreParameters() {
         ArrayList<Transaction> transactionHistory = new ArrayList<>(List.of(
-                CreateTransactions(1,1, 10, true),
-                CreateTransactions(2,1, 5, true),
-                CreateTransactions(3,1, 15, true),
-                CreateTransactions(4,2, 20, true)
+                Transactions.of(1,1, 10, true),
+                Transactions.of(2,1, 5, true),
+                Transactions.of(3,1, 15, true),
+                Transactions.of(4,2, 20, true)
         ));
 
         TransactionEngine transactionEngine = CreateTransactionEngine(transactionHistory);
 
         return new Object[][] {
-                { transactionEngine, CreateTransactions(4,1, 12, false), 0 },
-                { transactionEngine, CreateTransactions(4,1, 8, true), 0 },
-                { transactionEngine, CreateTransactions(4,1, 30, true), 10 },
-                { transactionEngine, CreateTransactions(4,1, 20, true), 0 } //changed for mutation coverage (amount = 2 * averageAmount)
+                { transactionEngine, Transactions.of(4,1, 12, false), 0 },
+                { transactionEngine, Transactions.of(4,1, 8, true), 0 },
+                { transactionEngine, Transactions.of(4,1, 30, true), 10 },
+                { transactionEngine, Transactions.of(4,1, 20, true), 0 } //changed for mutation coverage (amount = 2 * averageAmount)
         };
     }
     @ParameterizedTest
@@ -118,18 +111,18 @@ public class TransactionEngineTest {
 
     static Object[][] addTransactionParameters() {
         ArrayList<Transaction> transactionHistory = new ArrayList<>(List.of(
-                CreateTransactions(1, 1, 10, true),
-                CreateTransactions(2, 1, 5, true),
-                CreateTransactions(3, 1, 12, true)
+                Transactions.of(1, 1, 10, true),
+                Transactions.of(2, 1, 5, true),
+                Transactions.of(3, 1, 12, true)
         ));
 
         TransactionEngine transactionEngine = CreateTransactionEngine(transactionHistory);
 
         return new Object[][] {
-                { transactionEngine, CreateTransactions(1,1,10,true), 0 },
-                { transactionEngine, CreateTransactions(4,1, 22, true),
-                        transactionEngine.detectFraudulentTransaction(CreateTransactions(4,1, 22, true)) },
-                { transactionEngine, CreateTransactions(5,1, 8, true),
+                { transactionEngine, Transactions.of(1,1,10,true), 0 },
+                { transactionEngine, Transactions.of(4,1, 22, true),
+                        transactionEngine.detectFraudulentTransaction(Transactions.of(4,1, 22, true)) },
+                { transactionEngine, Transactions.of(5,1, 8, true),
                         transactionEngine.getTransactionPatternAboveThreshold(1000) }
         };
     }
@@ -139,4 +132,29 @@ public class TransactionEngineTest {
                                                               Transaction transaction, int expectedFraudScore) {
         assertEquals(expectedFraudScore, transactionEngine.addTransactionAndDetectFraud(transaction));
     }
+
+    @Test
+    void MetricsShouldCountOutcomesAndStageLatencies() {
+        EngineMetrics metrics = transactionEngine.enableMetrics();
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true));
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true));
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 5, true));
+
+        EngineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.accepted());
+        assertEquals(1, snapshot.duplicates());
+        assertEquals(1, snapshot.flagged());
+        assertEquals(3, snapshot.latencies().get(EngineMetrics.Stage.DEDUP).count());
+        assertEquals(2, snapshot.latencies().get(EngineMetrics.Stage.AVERAGE).count());
+        assertEquals(1, snapshot.latencies().get(EngineMetrics.Stage.PATTERN).count());
+        assertEquals(2, snapshot.latencies().get(EngineMetrics.Stage.APPEND).count());
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().accepted());
+        assertEquals(2, snapshot.accepted());
+
+        transactionEngine.disableMetrics();
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(3, 1, 5, true));
+        assertEquals(0, metrics.snapshot().accepted());
+    }
 }
@@ -0,0 +1,177 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransactionFeedReaderTest {
+    @TempDir
+    Path directory;
+
+    private static List<Transaction> CreateRandomTransactions(int count) {
+        Random random = new Random(count);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transactions.add(Transactions.of(random.nextInt(count), random.nextInt(40) - 20,
+                    random.nextInt(5) == 0 ? 1001 + random.nextInt(2) : random.nextInt(800) - 100, random.nextBoolean()));
+        }
+        return transactions;
+    }
+
+    private static List<Integer> ExpectedFraudScores(List<Transaction> transactions) {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        List<Integer> fraudScores = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            fraudScores.add(transactionEngine.addTransactionAndDetectFraud(transaction));
+        }
+        return fraudScores;
+    }
+
+    private static List<Integer> ReadFraudScores(Path file, boolean binary, int batchSize, int bufferBytes)
+            throws IOException {
+        List<Integer> fraudScores = new ArrayList<>();
+        TransactionFeedReader reader = new TransactionFeedReader(new TransactionEngine(),
+                (transactions, scores, count) -> {
+                    for (int i = 0; i < count; i++) {
+                        fraudScores.add(scores[i]);
+                    }
+                }, batchSize, bufferBytes);
+        long read = binary ? reader.readBinary(file) : reader.readCsv(file);
+        assertEquals(fraudScores.size(), read);
+        return fraudScores;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {64, 100, 4096})
+    void ReadCsvShouldMatchSequentialIngestion(int bufferBytes) throws IOException {
+        List<Transaction> transactions = CreateRandomTransactions(2000);
+        StringBuilder csv = new StringBuilder("transactionId,accountId,amount,isDebit\r\n");
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            csv.append(transaction.getTransactionId()).append(',').append(transaction.getAccountId()).append(',')
+                    .append(transaction.getAmount()).append(',')
+                    .append(i % 2 == 0 ? transaction.isDebit() : (transaction.isDebit() ? "1" : "0"));
+            if (i % 3 == 0) {
+                csv.append(',').append(1_700_000_000_000L + i);
+            }
+            csv.append(i % 5 == 0 ? "\r\n" : "\n");
+        }
+        csv.setLength(csv.length() - 1);
+        Path file = directory.resolve("feed.csv");
+        Files.writeString(file, csv, StandardCharsets.US_ASCII);
+
+        assertEquals(ExpectedFraudScores(transactions), ReadFraudScores(file, false, 300, bufferBytes));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {13, 50, 4096})
+    void ReadBinaryShouldMatchSequentialIngestion(int bufferBytes) throws IOException {
+        List<Transaction> transactions = CreateRandomTransactions(2000);
+        ByteBuffer records = ByteBuffer.allocate(transactions.size() * TransactionFeedReader.BINARY_RECORD_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (Transaction transaction : transactions) {
+            records.putInt(transaction.getTransactionId()).putInt(transaction.getAccountId())
+                    .putInt(transaction.getAmount()).put((byte) (transaction.isDebit() ? 1 : 0));
+        }
+        Path file = directory.resolve("feed.bin");
+        Files.write(file, records.array());
+
+        assertEquals(ExpectedFraudScores(transactions), ReadFraudScores(file, true, 256, bufferBytes));
+    }
+
+    @Test
+    void ReadCsvShouldPassTimestampsToEngine() throws IOException {
+        Path file = directory.resolve("feed.csv");
+        Files.writeString(file, "1,1,10,true,100\n2,1,20,false,250\n");
+        TransactionEngine transactionEngine = new TransactionEngine(TransactionWindow.ofEventTime(100));
+
+        new TransactionFeedReader(transactionEngine, (transactions, scores, count) -> { }).readCsv(file);
+
+        assertEquals(1, transactionEngine.transactionHistory.size());
+        assertEquals(250, transactionEngine.transactionHistory.timestamp(0));
+    }
+
+    @Test
+    void ReadCsvShouldRejectMalformedLine() throws IOException {
+        Path file = directory.resolve("feed.csv");
+        Files.writeString(file, "1,1,10,true\n2,x,10,true\n");
+
+        TransactionFeedReader reader = new TransactionFeedReader(new TransactionEngine(), (t, s, c) -> { });
+        IOException exception = assertThrows(IOException.class, () -> reader.readCsv(file));
+        assertEquals("Malformed transaction on line 2", exception.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"4294967297,1,10,true", "2,-2147483649,10,true", "2,1,99999999999,true",
+            "2,1,10,true,99999999999999999999", "2,1,10,tree", "2,1,10,fals", "2,1,10,True",
+            "2,1,10,true,5,6", "2,1,10,true,"})
+    void ReadCsvShouldRejectOutOfRangeAndUnknownFields(String line) throws IOException {
+        Path file = directory.resolve("feed.csv");
+        Files.writeString(file, "1,1,10,true\n" + line + "\n");
+
+        TransactionFeedReader reader = new TransactionFeedReader(new TransactionEngine(), (t, s, c) -> { });
+        IOException exception = assertThrows(IOException.class, () -> reader.readCsv(file));
+        assertEquals("Malformed transaction on line 2", exception.getMessage());
+    }
+
+    @Test
+    void ReadCsvShouldAcceptIntBounds() throws IOException {
+        Path file = directory.resolve("feed.csv");
+        Files.writeString(file, "2147483647,-2147483648,0,1\n-2147483648,2147483647,2147483647,0,"
+                + Long.MAX_VALUE + "\n");
+        TransactionEngine transactionEngine = new TransactionEngine();
+
+        new TransactionFeedReader(transactionEngine, (transactions, scores, count) -> { }).readCsv(file);
+
+        assertEquals(2, transactionEngine.transactionHistory.size());
+        assertEquals(Integer.MAX_VALUE, transactionEngine.transactionHistory.transactionId(0));
+        assertEquals(Integer.MIN_VALUE, transactionEngine.transactionHistory.accountId(0));
+        assertEquals(Integer.MAX_VALUE, transactionEngine.transactionHistory.amount(1));
+        assertEquals(Long.MAX_VALUE, transactionEngine.transactionHistory.timestamp(1));
+    }
+
+    // The failed read's unscored lines, including the half-read bad one, must not leak into the next read.
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void FailedReadShouldNotLeakIntoNextRead(boolean binaryNext) throws IOException {
+        Path bad = directory.resolve("bad.csv");
+        Files.writeString(bad, "1,1,10,true\n2,1,10,maybe\n");
+        Path good = directory.resolve("good.csv");
+        Files.writeString(good, "100,5,10,true\n");
+        Path goodBinary = directory.resolve("good.bin");
+        ByteBuffer record = ByteBuffer.allocate(TransactionFeedReader.BINARY_RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        TransactionCodec.encode(Transactions.of(100, 5, 10, true), record, 0);
+        Files.write(goodBinary, record.array());
+        TransactionEngine transactionEngine = new TransactionEngine();
+        TransactionFeedReader reader = new TransactionFeedReader(transactionEngine, (t, s, c) -> { });
+
+        assertThrows(IOException.class, () -> reader.readCsv(bad));
+        assertEquals(1, binaryNext ? reader.readBinary(goodBinary) : reader.readCsv(good));
+
+        assertEquals(1, transactionEngine.transactionHistory.size());
+        assertEquals(100, transactionEngine.transactionHistory.transactionId(0));
+    }
+
+    @Test
+    void ReadBinaryShouldRejectTruncatedRecord() throws IOException {
+        Path file = directory.resolve("feed.bin");
+        Files.write(file, new byte[TransactionFeedReader.BINARY_RECORD_BYTES + 3]);
+
+        TransactionFeedReader reader = new TransactionFeedReader(new TransactionEngine(), (t, s, c) -> { });
+        assertThrows(IOException.class, () -> reader.readBinary(file));
+    }
+}
@@ -0,0 +1,142 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionJournalTest {
+    @TempDir
+    Path directory;
+
+    private static void AddRandomTransactions(TransactionEngine transactionEngine, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = Transactions.of(random.nextInt(count), random.nextInt(20),
+                    random.nextInt(5) == 0 ? 1001 + random.nextInt(2) : random.nextInt(400), random.nextBoolean());
+            transaction.setTimestamp(random.nextLong());
+            transactionEngine.addTransactionAndDetectFraud(transaction);
+        }
+    }
+
+    private static void AssertSameState(TransactionEngine expected, TransactionEngine actual) {
+        assertEquals(expected.transactionHistory.size(), actual.transactionHistory.size());
+        assertEquals(expected.transactionIds.size(), actual.transactionIds.size());
+        assertEquals(expected.thresholdPattern.score(), actual.thresholdPattern.score());
+        for (int index = 0; index < expected.transactionHistory.size(); index++) {
+            assertEquals(expected.transactionHistory.transactionId(index), actual.transactionHistory.transactionId(index));
+            assertEquals(expected.transactionHistory.isDebit(index), actual.transactionHistory.isDebit(index));
+            assertEquals(expected.transactionHistory.timestamp(index), actual.transactionHistory.timestamp(index));
+        }
+        for (int accountId = 0; accountId < 20; accountId++) {
+            assertEquals(expected.getAverageTransactionAmountByAccount(accountId),
+                    actual.getAverageTransactionAmountByAccount(accountId));
+        }
+    }
+
+    @Test
+    void OpenShouldRejectInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> TransactionJournal.open(directory, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> TransactionJournal.open(directory, 10, -1));
+    }
+
+    @Test
+    void ReplayShouldRebuildEngineAcrossSegments() throws IOException {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 100, 7)) {
+            transactionEngine.attachJournal(journal);
+            AddRandomTransactions(transactionEngine, new Random(1), 1000);
+            assertEquals(transactionEngine.transactionHistory.size(), journal.recordCount());
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals((transactionEngine.transactionHistory.size() + 99) / 100,
+                    files.filter(file -> file.getFileName().toString().endsWith(".journal")).count());
+        }
+
+        TransactionEngine recoveredEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 100, 7)) {
+            assertEquals(transactionEngine.transactionHistory.size(), recoveredEngine.attachJournal(journal));
+        }
+        AssertSameState(transactionEngine, recoveredEngine);
+    }
+
+    @Test
+    void AppendAfterReopenShouldContinueJournal() throws IOException {
+        Random random = new Random(2);
+        TransactionEngine transactionEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 64, 0)) {
+            transactionEngine.attachJournal(journal);
+            AddRandomTransactions(transactionEngine, random, 150);
+        }
+
+        TransactionEngine reopenedEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 64, 0)) {
+            reopenedEngine.attachJournal(journal);
+            AddRandomTransactions(reopenedEngine, new Random(3), 150);
+            AddRandomTransactions(transactionEngine, new Random(3), 150);
+            assertEquals(transactionEngine.transactionHistory.size(), journal.recordCount());
+        }
+
+        TransactionEngine recoveredEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 64, 0)) {
+            recoveredEngine.attachJournal(journal);
+        }
+        AssertSameState(transactionEngine, recoveredEngine);
+    }
+
+    @Test
+    void OpenShouldRejectDifferentSegmentSize() throws IOException {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 100, 0)) {
+            transactionEngine.attachJournal(journal);
+            AddRandomTransactions(transactionEngine, new Random(4), 250);
+        }
+
+        assertThrows(IOException.class, () -> TransactionJournal.open(directory, 64, 0));
+        assertThrows(IOException.class, () -> TransactionJournal.open(directory));
+
+        TransactionEngine recoveredEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 100, 0)) {
+            recoveredEngine.attachJournal(journal);
+        }
+        AssertSameState(transactionEngine, recoveredEngine);
+    }
+
+    // Journals written before the header existed take their segment size from the segment files.
+    @Test
+    void OpenShouldAddHeaderToJournalWithoutOne() throws IOException {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 100, 0)) {
+            transactionEngine.attachJournal(journal);
+            AddRandomTransactions(transactionEngine, new Random(5), 250);
+        }
+        Files.delete(directory.resolve("journal.header"));
+
+        assertThrows(IOException.class, () -> TransactionJournal.open(directory, 64, 0));
+        TransactionEngine recoveredEngine = new TransactionEngine();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 100, 0)) {
+            recoveredEngine.attachJournal(journal);
+        }
+        AssertSameState(transactionEngine, recoveredEngine);
+        assertTrue(Files.exists(directory.resolve("journal.header")));
+        assertThrows(IOException.class, () -> TransactionJournal.open(directory, 64, 0));
+    }
+
+    @Test
+    void AttachJournalShouldRejectNonEmptyEngine() throws IOException {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true));
+
+        try (TransactionJournal journal = TransactionJournal.open(directory)) {
+            assertThrows(IllegalStateException.class, () -> transactionEngine.attachJournal(journal));
+        }
+    }
+}
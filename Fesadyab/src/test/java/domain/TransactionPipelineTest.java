@@ -0,0 +1,195 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionPipelineTest {
+    private static final int TRANSACTIONS = 50000;
+
+    @Test
+    void ConstructorShouldRejectRingSizeThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TransactionPipeline(new TransactionEngine(), 100, (id, score, duplicate) -> { }));
+    }
+
+    @Test
+    void SingleProducerShouldMatchSequentialEngine() throws InterruptedException {
+        Random random = new Random(3);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            transactions.add(Transactions.of(random.nextInt(TRANSACTIONS), random.nextInt(100),
+                    random.nextInt(4) == 0 ? 1001 + random.nextInt(2) : random.nextInt(400), random.nextBoolean()));
+        }
+
+        TransactionEngine sequentialEngine = new TransactionEngine();
+        int[] expectedFraudScores = new int[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            expectedFraudScores[i] = sequentialEngine.addTransactionAndDetectFraud(transactions.get(i));
+        }
+
+        int[] fraudScores = new int[TRANSACTIONS];
+        int[] received = new int[1];
+        TransactionPipeline pipeline = new TransactionPipeline(new TransactionEngine(), 1024,
+                (id, score, duplicate) -> fraudScores[received[0]++] = score);
+        pipeline.start();
+        for (Transaction transaction : transactions) {
+            pipeline.publish(transaction.getTransactionId(), transaction.getAccountId(),
+                    transaction.getAmount(), transaction.isDebit());
+        }
+        pipeline.close();
+
+        assertEquals(TRANSACTIONS, received[0]);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            assertEquals(expectedFraudScores[i], fraudScores[i]);
+        }
+    }
+
+    // Producers publish overlapping id ranges; every publish gets exactly one result and each
+    // id is accepted exactly once.
+    @Test
+    void ConcurrentProducersShouldAcceptEachIdOnce() throws InterruptedException {
+        int producers = 4;
+        int ids = 20000;
+        AtomicIntegerArray accepted = new AtomicIntegerArray(ids);
+        AtomicIntegerArray results = new AtomicIntegerArray(ids);
+        TransactionEngine transactionEngine = new TransactionEngine();
+        TransactionPipeline pipeline = new TransactionPipeline(transactionEngine, 256, (id, score, duplicate) -> {
+            results.incrementAndGet(id);
+            if (!duplicate) {
+                accepted.incrementAndGet(id);
+            }
+        });
+        pipeline.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int offset = p * ids / 8;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < ids / 2; i++) {
+                    pipeline.publish((offset + i) % ids, i % 10, i, true);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        pipeline.close();
+
+        int total = 0;
+        for (int id = 0; id < ids; id++) {
+            total += results.get(id);
+            assertEquals(results.get(id) > 0 ? 1 : 0, accepted.get(id));
+        }
+        assertEquals(producers * ids / 2, total);
+        assertEquals(transactionEngine.transactionIds.size(), transactionEngine.transactionHistory.size());
+    }
+
+    @Test
+    void ScoringFailureShouldBeReportedWithoutStallingThePipeline() throws InterruptedException {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        transactionEngine.addFraudDetector(new FraudDetector() {
+            @Override
+            public int score(Transaction txn) {
+                if (txn.amount == 13) {
+                    throw new IllegalArgumentException("unlucky amount");
+                }
+                return 0;
+            }
+
+            @Override
+            public int relativeCost() {
+                return 100;
+            }
+        });
+
+        List<Integer> failed = new ArrayList<>();
+        int[] scored = new int[1];
+        TransactionPipeline pipeline = new TransactionPipeline(transactionEngine, 16, new FraudScoreHandler() {
+            @Override
+            public void onFraudScore(int transactionId, int fraudScore, boolean duplicate) {
+                scored[0]++;
+            }
+
+            @Override
+            public void onScoringFailure(int transactionId, RuntimeException failure) {
+                failed.add(transactionId);
+            }
+        });
+        pipeline.start();
+        for (int i = 0; i < 1000; i++) {
+            pipeline.publish(i, i % 7, i % 100 == 0 ? 13 : 10, false);
+        }
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, pipeline::close);
+        assertEquals("unlucky amount", exception.getCause().getMessage());
+        assertEquals(10, failed.size());
+        assertEquals(990, scored[0]);
+    }
+
+    @Test
+    void HandlerFailureShouldNotBlockProducersOrClose() throws InterruptedException {
+        int[] calls = new int[1];
+        TransactionPipeline pipeline = new TransactionPipeline(new TransactionEngine(), 8, (id, score, duplicate) -> {
+            calls[0]++;
+            throw new IllegalStateException("handler down");
+        });
+        pipeline.start();
+        for (int i = 0; i < 100; i++) {
+            pipeline.publish(i, 1, 10, false);
+        }
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, pipeline::close);
+        assertEquals("handler down", exception.getCause().getMessage());
+        assertEquals(100, calls[0]);
+    }
+
+    @Test
+    void ErrorInHandlerShouldFailThePipelineWithoutBlockingProducers() throws InterruptedException {
+        TransactionPipeline pipeline = new TransactionPipeline(new TransactionEngine(), 8, (id, score, duplicate) -> {
+            if (id == 5) {
+                throw new AssertionError("handler down");
+            }
+        });
+        pipeline.start();
+        int published = 0;
+        try {
+            for (; published < 10000; published++) {
+                pipeline.publish(published, 1, 10, false);
+            }
+        } catch (IllegalStateException e) {
+            assertInstanceOf(AssertionError.class, e.getCause());
+        }
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, pipeline::close);
+        assertInstanceOf(AssertionError.class, exception.getCause());
+        assertThrows(IllegalStateException.class, () -> pipeline.publish(10000, 1, 10, false));
+        assertTrue(published > 5);
+    }
+
+    @Test
+    void DedupStageShouldRecordDuplicateMetrics() throws InterruptedException {
+        TransactionEngine transactionEngine = new TransactionEngine();
+        EngineMetrics metrics = transactionEngine.enableMetrics();
+        TransactionPipeline pipeline = new TransactionPipeline(transactionEngine, 64, (id, score, duplicate) -> { });
+        pipeline.start();
+        for (int i = 0; i < 500; i++) {
+            pipeline.publish(i % 400, 1, 10, false);
+        }
+        pipeline.close();
+
+        EngineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(400, snapshot.accepted());
+        assertEquals(100, snapshot.duplicates());
+        assertEquals(500, snapshot.latencies().get(EngineMetrics.Stage.DEDUP).count());
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -54,6 +55,18 @@ public class TransactionTest {
         assertFalse(transaction.equals(null));
     }
 
+    @Test
+    void HashCodeShouldBeEqualWhenTransactionIsEqual()
+    {
+        Transaction transaction1 = new Transaction();
+        transaction.setTransactionId(1);
+        transaction.setAmount(10);
+        transaction1.setTransactionId(1);
+        transaction1.setAmount(20);
+        assertTrue(transaction.equals(transaction1));
+        assertEquals(transaction.hashCode(), transaction1.hashCode());
+    }
+
     @Test
     void GetterAndSetterShouldReturnCorrectValue()
     {
@@ -0,0 +1,106 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransactionWindowTest {
+    private static int WindowAverage(Deque<Transaction> window, int accountId) {
+        long sum = 0;
+        long count = 0;
+        for (Transaction transaction : window) {
+            if (transaction.getAccountId() == accountId) {
+                sum += transaction.getAmount();
+                count++;
+            }
+        }
+        return count == 0 ? 0 : (int) (sum / count);
+    }
+
+    @Test
+    void WindowShouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> TransactionWindow.ofCount(0));
+        assertThrows(IllegalArgumentException.class, () -> TransactionWindow.ofEventTime(-1));
+    }
+
+    // Compares the windowed engine against a brute-force model that keeps the window in a deque.
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 64})
+    void CountWindowShouldMatchBruteForceOverRetainedTransactions(int windowSize) {
+        Random random = new Random(windowSize);
+        TransactionEngine transactionEngine = new TransactionEngine(TransactionWindow.ofCount(windowSize));
+        ThresholdPatternDetector thresholdPattern = new ThresholdPatternDetector(transactionEngine.THRESHOLD);
+        Deque<Transaction> window = new ArrayDeque<>();
+
+        for (int i = 0; i < 3000; i++) {
+            Transaction transaction = Transactions.of(random.nextInt(200), random.nextInt(10),
+                    random.nextInt(6) == 0 ? 1001 + random.nextInt(2) : random.nextInt(300), random.nextBoolean(), 0);
+
+            int expectedFraudScore = 0;
+            if (window.contains(transaction)) {
+                assertEquals(0, transactionEngine.addTransactionAndDetectFraud(transaction));
+            } else {
+                expectedFraudScore = TransactionEngine.excessiveDebitScore(transaction,
+                        WindowAverage(window, transaction.getAccountId()));
+                if (expectedFraudScore == 0) {
+                    expectedFraudScore = thresholdPattern.score();
+                }
+                thresholdPattern.accept(transaction.getAmount());
+                window.addLast(transaction);
+                if (window.size() > windowSize) {
+                    window.removeFirst();
+                }
+                assertEquals(expectedFraudScore, transactionEngine.addTransactionAndDetectFraud(transaction));
+            }
+
+            assertEquals(window.size(), transactionEngine.transactionHistory.size());
+            assertEquals(window.size(), transactionEngine.transactionIds.size());
+            for (int accountId = 0; accountId < 10; accountId++) {
+                assertEquals(WindowAverage(window, accountId),
+                        transactionEngine.getAverageTransactionAmountByAccount(accountId));
+            }
+        }
+    }
+
+    @Test
+    void EventTimeWindowShouldEvictTransactionsOlderThanSpan() {
+        TransactionEngine transactionEngine = new TransactionEngine(TransactionWindow.ofEventTime(100));
+
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true, 1000));
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 30, true, 1050));
+        assertEquals(20, transactionEngine.getAverageTransactionAmountByAccount(1));
+
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(3, 2, 50, true, 1100));
+        assertEquals(2, transactionEngine.transactionHistory.size());
+        assertEquals(30, transactionEngine.getAverageTransactionAmountByAccount(1));
+
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(4, 2, 70, true, 1200));
+        assertEquals(1, transactionEngine.transactionHistory.size());
+        assertEquals(0, transactionEngine.getAverageTransactionAmountByAccount(1));
+        assertEquals(1, transactionEngine.accountAggregates.accountCount());
+    }
+
+    @Test
+    void EvictedTransactionIdShouldBeAcceptedAgain() {
+        TransactionEngine transactionEngine = new TransactionEngine(TransactionWindow.ofCount(1));
+
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 10, true, 0));
+        assertEquals(0, transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 50, true, 0)));
+        transactionEngine.addTransactionAndDetectFraud(Transactions.of(2, 1, 10, true, 0));
+
+        assertEquals(30, transactionEngine.addTransactionAndDetectFraud(Transactions.of(1, 1, 50, true, 0)));
+    }
+
+    @Test
+    void PipelineShouldRejectWindowedEngine() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionPipeline(
+                new TransactionEngine(TransactionWindow.ofCount(10)), 16, (id, score, duplicate) -> { }));
+    }
+}
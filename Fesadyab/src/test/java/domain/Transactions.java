@@ -0,0 +1,22 @@
+package domain;
+
+// Shared test fixture for building transactions.
+final class Transactions {
+    private Transactions() {
+    }
+
+    static Transaction of(int transactionId, int accountId, int amount, boolean isDebit) {
+        Transaction transaction = new Transaction();
+        transaction.setAccountId(accountId);
+        transaction.setAmount(amount);
+        transaction.setTransactionId(transactionId);
+        transaction.setDebit(isDebit);
+        return transaction;
+    }
+
+    static Transaction of(int transactionId, int accountId, int amount, boolean isDebit, long timestamp) {
+        Transaction transaction = of(transactionId, accountId, amount, isDebit);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
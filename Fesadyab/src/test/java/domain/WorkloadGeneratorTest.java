@@ -0,0 +1,234 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorkloadGeneratorTest {
+    private static WorkloadGenerator CreateGenerator(long seed) {
+        return new WorkloadGenerator(seed)
+                .accounts(1000, 0.99)
+                .debitRatio(0.3)
+                .uniformAmounts(500)
+                .spikes(0.01, 20)
+                .progressions(0.005, 5, 1000)
+                .duplicates(0.02);
+    }
+
+    private static void AssertSameTransaction(Transaction expected, Transaction actual) {
+        assertEquals(expected.transactionId, actual.transactionId);
+        assertEquals(expected.accountId, actual.accountId);
+        assertEquals(expected.amount, actual.amount);
+        assertEquals(expected.isDebit, actual.isDebit);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 42, 2024})
+    public void SameSeedGivesSameStream(long seed) {
+        WorkloadGenerator first = CreateGenerator(seed);
+        WorkloadGenerator second = CreateGenerator(seed);
+        Transaction a = new Transaction();
+        Transaction b = new Transaction();
+        for (int i = 0; i < 10_000; i++) {
+            AssertSameTransaction(first.next(a), second.next(b));
+            assertEquals(first.lastKind(), second.lastKind());
+        }
+    }
+
+    @Test
+    public void DifferentSeedsGiveDifferentStreams() {
+        WorkloadGenerator first = CreateGenerator(1);
+        WorkloadGenerator second = CreateGenerator(2);
+        int differences = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (first.next(new Transaction()).amount != second.next(new Transaction()).amount) {
+                differences++;
+            }
+        }
+        assertTrue(differences > 900);
+    }
+
+    @Test
+    public void RatesFollowTheConfiguration() {
+        WorkloadGenerator generator = CreateGenerator(7);
+        int total = 200_000;
+        int debits = 0;
+        int spikes = 0;
+        int duplicates = 0;
+        int accountZero = 0;
+        Set<Integer> ids = new HashSet<>();
+        Transaction txn = new Transaction();
+        for (int i = 0; i < total; i++) {
+            generator.next(txn);
+            switch (generator.lastKind()) {
+                case NORMAL -> {
+                    if (txn.isDebit) {
+                        debits++;
+                    }
+                    assertTrue(txn.amount >= 0 && txn.amount < 500);
+                }
+                case SPIKE -> {
+                    spikes++;
+                    assertTrue(txn.isDebit);
+                    assertTrue(txn.amount >= 20);
+                }
+                case DUPLICATE -> {
+                    duplicates++;
+                    assertTrue(ids.contains(txn.transactionId));
+                }
+                case PROGRESSION -> assertTrue(txn.amount > 1000);
+            }
+            if (generator.lastKind() != WorkloadGenerator.Kind.DUPLICATE) {
+                assertTrue(ids.add(txn.transactionId));
+            }
+            if (txn.accountId == 0) {
+                accountZero++;
+            }
+            assertTrue(txn.accountId >= 0 && txn.accountId < 1000);
+        }
+
+        assertEquals(total, generator.generated());
+        assertEquals(0.02, duplicates / (double) total, 0.003);
+        assertEquals(0.01, spikes / (double) total, 0.002);
+        assertEquals(0.3, debits / (double) (total - spikes - duplicates), 0.02);
+        // With exponent 0.99 over 1000 accounts the most popular one gets about 13%.
+        assertEquals(0.13, accountZero / (double) total, 0.02);
+    }
+
+    // A high rate makes duplicates of duplicates common, which must stay inside the window too.
+    @ParameterizedTest
+    @ValueSource(longs = {1, 42, 2024})
+    public void DuplicatesRepeatOneOfTheLastWindowIds(long seed) {
+        WorkloadGenerator generator = new WorkloadGenerator(seed).duplicates(0.5);
+        int[] emitted = new int[50_000];
+        Transaction txn = new Transaction();
+        for (int i = 0; i < emitted.length; i++) {
+            generator.next(txn);
+            emitted[i] = txn.transactionId;
+            if (generator.lastKind() == WorkloadGenerator.Kind.DUPLICATE) {
+                boolean recent = false;
+                for (int k = Math.max(0, i - WorkloadGenerator.DUPLICATE_WINDOW); k < i && !recent; k++) {
+                    recent = emitted[k] == txn.transactionId;
+                }
+                assertTrue(recent);
+            }
+        }
+    }
+
+    @Test
+    public void ProgressionsGrowByAFixedStepAboveTheThreshold() {
+        WorkloadGenerator generator = new WorkloadGenerator(3)
+                .progressions(0.01, 6, 5000);
+        Transaction txn = new Transaction();
+        List<Integer> run = new ArrayList<>();
+        int runs = 0;
+        for (int i = 0; i < 100_000; i++) {
+            generator.next(txn);
+            if (generator.lastKind() == WorkloadGenerator.Kind.PROGRESSION) {
+                assertTrue(txn.amount > 5000);
+                run.add(txn.amount);
+            }
+            if (run.size() == 6) {
+                int step = run.get(1) - run.get(0);
+                assertTrue(step > 0);
+                for (int k = 1; k < run.size(); k++) {
+                    assertEquals(step, run.get(k) - run.get(k - 1));
+                }
+                run.clear();
+                runs++;
+            }
+        }
+        assertTrue(runs > 100);
+    }
+
+    @Test
+    public void LogNormalAmountsCenterOnTheMedian() {
+        WorkloadGenerator generator = new WorkloadGenerator(11).logNormalAmounts(200, 0.5);
+        Transaction txn = new Transaction();
+        int below = 0;
+        for (int i = 0; i < 50_000; i++) {
+            if (generator.next(txn).amount < 200) {
+                below++;
+            }
+        }
+        assertEquals(0.5, below / 50_000.0, 0.02);
+    }
+
+    private static WorkloadGenerator SpikyGenerator() {
+        return new WorkloadGenerator(5)
+                .accounts(50, 0.5)
+                .uniformAmounts(100)
+                .spikes(0.01, 50);
+    }
+
+    @Test
+    public void FeedFlagsInjectedSpikes() {
+        TransactionEngine engine = new TransactionEngine();
+        long flagged = SpikyGenerator().feed(engine, 50_000, 512);
+
+        WorkloadGenerator twin = SpikyGenerator();
+        Transaction txn = new Transaction();
+        int spikes = 0;
+        for (int i = 0; i < 50_000; i++) {
+            twin.next(txn);
+            if (twin.lastKind() == WorkloadGenerator.Kind.SPIKE) {
+                spikes++;
+            }
+        }
+
+        // Spikes are 50 times an amount whose account average is about 50, so nearly all of them
+        // exceed twice the average. The pattern check flags some normal ones as well.
+        assertTrue(spikes > 400);
+        assertTrue(flagged >= spikes * 9L / 10);
+        assertEquals(50_000, engine.transactionHistory.size());
+    }
+
+    @Test
+    public void BinaryStreamReadsBackThroughTheFeedReader(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("workload.bin");
+        CreateGenerator(9).writeBinary(file, 20_000);
+        assertEquals(20_000L * TransactionCodec.RECORD_BYTES, Files.size(file));
+
+        List<Transaction> read = new ArrayList<>();
+        TransactionEngine engine = new TransactionEngine();
+        TransactionFeedReader reader = new TransactionFeedReader(engine, (batch, fraudScores, count) -> {
+            for (int i = 0; i < count; i++) {
+                Transaction copy = new Transaction();
+                copy.transactionId = batch[i].transactionId;
+                copy.accountId = batch[i].accountId;
+                copy.amount = batch[i].amount;
+                copy.isDebit = batch[i].isDebit;
+                read.add(copy);
+            }
+        });
+        assertEquals(20_000, reader.readBinary(file));
+
+        WorkloadGenerator expected = CreateGenerator(9);
+        for (Transaction actual : read) {
+            AssertSameTransaction(expected.next(new Transaction()), actual);
+        }
+    }
+
+    @Test
+    public void RejectsInvalidSettings() {
+        WorkloadGenerator generator = new WorkloadGenerator(1);
+        assertThrows(IllegalArgumentException.class, () -> generator.debitRatio(1.5));
+        assertThrows(IllegalArgumentException.class, () -> generator.duplicates(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> generator.uniformAmounts(0));
+        assertThrows(IllegalArgumentException.class, () -> generator.progressions(0.1, 1, 1000));
+        assertThrows(IllegalArgumentException.class, () -> generator.logNormalAmounts(0, 1));
+    }
+}